@@ -0,0 +1,114 @@
+package com.example.db_test;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Near-cache in front of BlogRepository.findByAuthorName.
+// 5000 authors share 1M posts and traffic is skewed towards a few of them, so their lists are worth keeping.
+//   1. BOUNDED BY WEIGHT: an entry weighs as many units as the author has posts, so one prolific author
+//      cannot quietly take the space of a hundred small ones (blog.cache.max-posts)
+//      MEMORY COST: the weight counts posts, not bytes. Each cached post is the whole entity, @Lob content included,
+//      because /search returns the content. The heap used is about max-posts x average post size, content
+//      included, so lower max-posts when posts are long. blog.cache.estimated.bytes shows the real figure.
+//   2. W-TinyLFU (Caffeine): a one-off lookup does not push out an author that is asked for all the time
+//   3. NO STAMPEDE: a missing author is loaded once, however many requests ask at the same moment.
+//      When an entry gets old it is refreshed in the background, and readers keep getting the old list meanwhile.
+//   4. INVALIDATED ON WRITE: BlogPostCacheListener drops an author's entry when one of their posts is saved
+//      or deleted (again after the commit, so nobody caches the pre-commit state). A post that changed author
+//      evicts both authors.
+
+@Component
+public class AuthorPostsCache {
+
+    private final LoadingCache<String, List<BlogPost>> cache;
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    public AuthorPostsCache(BlogRepository repository,
+                            MeterRegistry registry,
+                            @Value("${blog.cache.max-posts:200000}") long maxPosts,
+                            @Value("${blog.cache.refresh-after-write:60s}") Duration refreshAfterWrite,
+                            @Value("${blog.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxPosts)
+                .weigher((String author, List<BlogPost> posts) -> Math.max(1, posts.size()))
+                .refreshAfterWrite(refreshAfterWrite)
+                .expireAfterWrite(expireAfterWrite)
+                .removalListener((String author, List<BlogPost> posts, RemovalCause cause) -> {
+                    if (posts != null) estimatedBytes.addAndGet(-estimateBytes(posts));
+                })
+                .recordStats()
+                .build(author -> {
+                    List<BlogPost> posts = List.copyOf(repository.findByAuthorName(author));
+                    estimatedBytes.addAndGet(estimateBytes(posts));
+                    return posts;
+                });
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size, cache.eviction.weight, cache.load.duration ...
+        CaffeineCacheMetrics.monitor(registry, cache, "author-posts");
+        Gauge.builder("blog.cache.hit.ratio", cache, c -> c.stats().hitRate()).register(registry);
+        Gauge.builder("blog.cache.posts", cache, c -> c.policy().eviction().orElseThrow().weightedSize().orElse(0))
+                .description("Posts held by the cache (the weight it is bounded by)").register(registry);
+        Gauge.builder("blog.cache.estimated.bytes", estimatedBytes, AtomicLong::get)
+                .baseUnit("bytes").register(registry);
+    }
+
+    public List<BlogPost> get(String author) {
+        return cache.get(author);
+    }
+
+    public void invalidate(String author) {
+        cache.invalidate(author);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A reader between our write and the commit could re-cache the old list: drop it again afterwards
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(author);
+                }
+            });
+        }
+    }
+
+    // For writes that bypass JPA (the bulk loader)
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long cachedPosts() {
+        cache.cleanUp();
+        return cache.policy().eviction().orElseThrow().weightedSize().orElse(0);
+    }
+
+    public long estimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    // Rough heap cost: the entity, its boxed id and three Strings (UTF-16 worst case)
+    static long estimateBytes(List<BlogPost> posts) {
+        long bytes = 16 + 16L * posts.size(); // List + one reference per element
+        for (BlogPost post : posts) {
+            bytes += 32 + 16 + stringBytes(post.getTitle()) + stringBytes(post.getAuthorName()) + stringBytes(post.getContent());
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+}
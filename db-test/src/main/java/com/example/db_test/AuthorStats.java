@@ -0,0 +1,125 @@
+package com.example.db_test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.List;
+import java.util.Optional;
+
+// Per-author summary (post count + latest post), so dashboards never run GROUP BY over 1M+ posts:
+//   1. author_stats has one row per author: author_name (PK), post_count, latest_post_id, latest_title
+//   2. AuthorStatsTrigger keeps it right on every INSERT/UPDATE/DELETE, in the same transaction as the write
+//   3. The bulk loader drops the trigger while it loads and calls rebuild() once at the end (one GROUP BY pass)
+//   4. Reads are a primary-key lookup (stats) or the first N entries of idx_stats_top (top), whatever the table size
+// verify() recomputes everything from blog_posts and lists the authors whose summary does not match.
+
+@Component
+public class AuthorStats {
+
+    public record Stats(String authorName, long postCount, Long latestPostId, String latestTitle) {}
+
+    public record Mismatch(String authorName, Long expectedPosts, Long actualPosts,
+                           Long expectedLatestPostId, Long actualLatestPostId) {}
+
+    public record Verification(boolean consistent, long authors, long mismatches, List<Mismatch> sample, long millis) {}
+
+    private static final String TRIGGER = "trg_author_stats";
+    private static final int SAMPLE = 20;
+
+    private static final RowMapper<Stats> STATS = (rs, i) -> new Stats(rs.getString("author_name"),
+            rs.getLong("post_count"), rs.getObject("latest_post_id", Long.class), rs.getString("latest_title"));
+
+    // Every author's count and latest post, straight from blog_posts
+    private static final String FROM_POSTS = "SELECT g.author_name, g.post_count, g.latest_post_id, p.title AS latest_title "
+            + "FROM (SELECT author_name, COUNT(*) AS post_count, MAX(id) AS latest_post_id FROM blog_posts "
+            + "      WHERE author_name IS NOT NULL GROUP BY author_name) g "
+            + "JOIN blog_posts p ON p.id = g.latest_post_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public AuthorStats(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Creates the table, its index and the trigger if they are missing. True if the table had to be created
+    // (it is empty then, and needs a rebuild() if blog_posts is not).
+    public boolean install() {
+        Integer tables = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'AUTHOR_STATS'",
+                Integer.class);
+        boolean created = tables == null || tables == 0;
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS author_stats ("
+                + "author_name VARCHAR(255) PRIMARY KEY, "
+                + "post_count BIGINT NOT NULL, "
+                + "latest_post_id BIGINT, "
+                + "latest_title VARCHAR(255))");
+        // /authors/top reads this index from the top: no sort, no scan
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_stats_top ON author_stats(post_count DESC, author_name)");
+        resume();
+        return created;
+    }
+
+    // Stops maintaining the table (bulk loads). Whatever is written until the next rebuild() is not counted.
+    public void suspend() {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + TRIGGER);
+    }
+
+    private void resume() {
+        jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS " + TRIGGER + " AFTER INSERT, UPDATE, DELETE ON blog_posts "
+                + "FOR EACH ROW CALL '" + AuthorStatsTrigger.class.getName() + "'");
+    }
+
+    // Recomputes the whole table in one pass. The trigger goes back on FIRST and the recompute is one transaction:
+    // a post written meanwhile is either already in the GROUP BY or waits for our commit and then adds itself.
+    public long rebuild() {
+        long start = System.currentTimeMillis();
+        resume();
+        Integer authors = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM author_stats");
+            return jdbcTemplate.update("INSERT INTO author_stats (author_name, post_count, latest_post_id, latest_title) " + FROM_POSTS);
+        });
+        long millis = System.currentTimeMillis() - start;
+        System.out.println("Rebuilt author_stats (" + authors + " authors) in " + millis + "ms");
+        return authors == null ? 0 : authors;
+    }
+
+    public Optional<Stats> stats(String author) {
+        return jdbcTemplate.query(
+                "SELECT author_name, post_count, latest_post_id, latest_title FROM author_stats WHERE author_name = ?",
+                STATS, author).stream().findFirst();
+    }
+
+    public List<Stats> top(int limit) {
+        return jdbcTemplate.query(
+                "SELECT author_name, post_count, latest_post_id, latest_title FROM author_stats "
+                        + "ORDER BY post_count DESC, author_name LIMIT ?",
+                STATS, limit);
+    }
+
+    // Full comparison against blog_posts: a GROUP BY over every post, so this is a maintenance call, not a dashboard one
+    public Verification verify() {
+        long start = System.currentTimeMillis();
+        String differences = "SELECT e.author_name, e.post_count AS expected_posts, a.post_count AS actual_posts, "
+                + "e.latest_post_id AS expected_latest, a.latest_post_id AS actual_latest "
+                + "FROM (" + FROM_POSTS + ") e LEFT JOIN author_stats a ON a.author_name = e.author_name "
+                + "WHERE a.author_name IS NULL OR a.post_count <> e.post_count "
+                + "OR a.latest_post_id IS DISTINCT FROM e.latest_post_id OR a.latest_title IS DISTINCT FROM e.latest_title "
+                + "UNION ALL "
+                // Summary rows for authors that no longer have any post
+                + "SELECT a.author_name, NULL, a.post_count, NULL, a.latest_post_id FROM author_stats a "
+                + "WHERE NOT EXISTS (SELECT 1 FROM blog_posts p WHERE p.author_name = a.author_name)";
+
+        List<Mismatch> mismatches = jdbcTemplate.query(differences, (rs, i) -> new Mismatch(rs.getString(1),
+                rs.getObject(2, Long.class), rs.getObject(3, Long.class), rs.getObject(4, Long.class), rs.getObject(5, Long.class)));
+        Long authors = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM author_stats", Long.class);
+
+        long millis = System.currentTimeMillis() - start;
+        System.out.println("Verified author_stats in " + millis + "ms: " + mismatches.size() + " mismatches");
+        return new Verification(mismatches.isEmpty(), authors == null ? 0 : authors, mismatches.size(),
+                mismatches.subList(0, Math.min(SAMPLE, mismatches.size())), millis);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.db_test;
+
+import org.h2.api.ErrorCode;
+import org.h2.api.Trigger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+// Row-level H2 trigger on blog_posts (installed by AuthorStats). It runs inside the writing transaction, so
+// author_stats commits or rolls back together with the post itself:
+//   INSERT -> post_count + 1, and the new post becomes the latest one if its id is higher
+//   DELETE -> post_count - 1 (the row goes away at 0); if it was the latest post, look up the next one
+//   UPDATE -> only matters when the author or the title changes: handled as DELETE + INSERT
+// Every statement touches a single author_stats row by primary key, so the cost does not grow with the table.
+// Two first posts of a new author in parallel transactions both take MERGE's "not matched" branch. The second one
+// hits the primary key once the first commits, so it is retried as a plain UPDATE of the row that now exists.
+
+public class AuthorStatsTrigger implements Trigger {
+
+    private static final String ADD = "MERGE INTO author_stats s USING (VALUES (CAST(? AS VARCHAR), CAST(? AS BIGINT), CAST(? AS VARCHAR))) v(a, i, t) "
+            + "ON s.author_name = v.a "
+            + "WHEN MATCHED THEN UPDATE SET post_count = s.post_count + 1, "
+            + "  latest_title = CASE WHEN v.i > s.latest_post_id THEN v.t ELSE s.latest_title END, "
+            + "  latest_post_id = GREATEST(s.latest_post_id, v.i) "
+            + "WHEN NOT MATCHED THEN INSERT (author_name, post_count, latest_post_id, latest_title) VALUES (v.a, 1, v.i, v.t)";
+
+    private static final String INCREMENT = "UPDATE author_stats SET post_count = post_count + 1, "
+            + "latest_title = CASE WHEN CAST(? AS BIGINT) > latest_post_id THEN CAST(? AS VARCHAR) ELSE latest_title END, "
+            + "latest_post_id = GREATEST(latest_post_id, CAST(? AS BIGINT)) "
+            + "WHERE author_name = ?";
+
+    private static final String DECREMENT = "UPDATE author_stats SET post_count = post_count - 1 WHERE author_name = ?";
+    private static final String REMOVE_EMPTY = "DELETE FROM author_stats WHERE author_name = ? AND post_count <= 0";
+    private static final String NEXT_LATEST = "UPDATE author_stats SET (latest_post_id, latest_title) = "
+            + "(SELECT id, title FROM blog_posts WHERE author_name = ? ORDER BY id DESC LIMIT 1) "
+            + "WHERE author_name = ? AND latest_post_id = ?";
+
+    // Positions of the columns we need in the Object[] rows H2 hands us (Hibernate decides the column order)
+    private int idColumn;
+    private int authorColumn;
+    private int titleColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+            throws SQLException {
+        idColumn = authorColumn = titleColumn = -1;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COLUMN_NAME, ORDINAL_POSITION FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?")) {
+            ps.setString(1, schemaName);
+            ps.setString(2, tableName);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int index = rs.getInt(2) - 1;
+                    switch (rs.getString(1)) {
+                        case "ID" -> idColumn = index;
+                        case "AUTHOR_NAME" -> authorColumn = index;
+                        case "TITLE" -> titleColumn = index;
+                        default -> { }
+                    }
+                }
+            }
+        }
+        if (idColumn < 0 || authorColumn < 0 || titleColumn < 0) {
+            throw new SQLException("AuthorStatsTrigger needs ID, AUTHOR_NAME and TITLE columns on " + tableName);
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (oldRow != null && newRow != null
+                && Objects.equals(oldRow[authorColumn], newRow[authorColumn])
+                && Objects.equals(oldRow[titleColumn], newRow[titleColumn])) {
+            return; // e.g. only the content changed
+        }
+        if (oldRow != null) {
+            removed(conn, oldRow);
+        }
+        if (newRow != null) {
+            added(conn, newRow);
+        }
+    }
+
+    private void added(Connection conn, Object[] row) throws SQLException {
+        Object author = row[authorColumn];
+        if (author == null) {
+            return; // Posts without an author are not counted anywhere
+        }
+        try (PreparedStatement merge = conn.prepareStatement(ADD);
+             PreparedStatement increment = conn.prepareStatement(INCREMENT)) {
+            merge.setObject(1, author);
+            merge.setObject(2, row[idColumn]);
+            merge.setObject(3, row[titleColumn]);
+            increment.setObject(1, row[idColumn]);
+            increment.setObject(2, row[titleColumn]);
+            increment.setObject(3, row[idColumn]);
+            increment.setObject(4, author);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    merge.executeUpdate();
+                    return;
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != ErrorCode.DUPLICATE_KEY_1 || attempt == 3) {
+                        throw e;
+                    }
+                }
+                // Only the failed statement was undone, our transaction goes on. 0 rows: the other writer
+                // rolled back after all, so the row is gone again and MERGE can insert it.
+                if (increment.executeUpdate() > 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void removed(Connection conn, Object[] row) throws SQLException {
+        Object author = row[authorColumn];
+        if (author == null) {
+            return;
+        }
+        try (PreparedStatement decrement = conn.prepareStatement(DECREMENT);
+             PreparedStatement removeEmpty = conn.prepareStatement(REMOVE_EMPTY);
+             PreparedStatement nextLatest = conn.prepareStatement(NEXT_LATEST)) {
+            decrement.setObject(1, author);
+            decrement.executeUpdate();
+            removeEmpty.setObject(1, author);
+            if (removeEmpty.executeUpdate() > 0) {
+                return; // That was their last post
+            }
+            // A no-op unless the deleted post was the latest one (one idx_author lookup when it was)
+            nextLatest.setObject(1, author);
+            nextLatest.setObject(2, author);
+            nextLatest.setObject(3, row[idColumn]);
+            nextLatest.executeUpdate();
+        }
+    }
+}
@@ -1,9 +1,20 @@
 package com.example.db_test;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 // --- REPOSITORY ---
@@ -17,21 +28,129 @@ interface BlogRepository extends JpaRepository<BlogPost, Long> {
 public class BlogController {
 
     private final BlogRepository repository;
+    private final AuthorPostsCache authorCache;
+    private final BlogSearchStreamer searchStreamer;
+    private final FullTextIndex fullTextIndex;
+    private final AuthorStats authorStats;
+    private final QueryInspector queryInspector;
 
-    public BlogController(BlogRepository repository) {
+    public BlogController(BlogRepository repository,
+                          AuthorPostsCache authorCache,
+                          BlogSearchStreamer searchStreamer,
+                          FullTextIndex fullTextIndex,
+                          AuthorStats authorStats,
+                          QueryInspector queryInspector) {
         this.repository = repository;
+        this.authorCache = authorCache;
+        this.searchStreamer = searchStreamer;
+        this.fullTextIndex = fullTextIndex;
+        this.authorStats = authorStats;
+        this.queryInspector = queryInspector;
     }
 
+    public record NewPost(String title, String authorName, String content) {}
+
+    public record TextSearchPage(String query, String engine, List<FullTextIndex.Hit> hits, Integer nextOffset) {}
+
     @GetMapping("/search")
     public List<BlogPost> search(@RequestParam String author) {
-        long start = System.currentTimeMillis();
-        
-        // This is the query we are stress testing
-        List<BlogPost> results = repository.findByAuthorName(author);
-        
-        long end = System.currentTimeMillis();
-        System.out.println("Found " + results.size() + " posts in " + (end - start) + "ms");
-        
-        return results;
-    }
-}
\ No newline at end of file
+        // This is the query we are stress testing (served from the near-cache after the first time)
+        return authorCache.get(author);
+    }
+
+    // Writing a post evicts its author from the cache (BlogPostCacheListener) and indexes it for /search/text
+    @PostMapping("/posts")
+    public BlogPost create(@RequestBody NewPost post) {
+        if (post.authorName() == null || post.authorName().isBlank()) {
+            throw new IllegalArgumentException("authorName is required");
+        }
+        return repository.save(new BlogPost(post.title(), post.authorName(), post.content()));
+    }
+
+    // Light-weight search: id/title/authorName only, one page at a time, streamed row by row.
+    // Next page: /search/stream?author=...&after=<nextCursor>
+    @GetMapping("/search/stream")
+    public ResponseEntity<StreamingResponseBody> searchStream(@RequestParam String author,
+                                                              @RequestParam(defaultValue = "0") long after,
+                                                              @RequestParam(defaultValue = "100") int limit,
+                                                              @RequestParam(defaultValue = "false") boolean content) {
+        searchStreamer.validate(limit);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> searchStreamer.writePage(author, after, limit, content, out));
+    }
+
+    // The @Lob column, only for the post somebody actually opens
+    @GetMapping("/posts/{id}/content")
+    public ResponseEntity<StreamingResponseBody> content(@PathVariable long id) {
+        if (!searchStreamer.exists(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(out -> {
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    searchStreamer.writeContent(id, writer);
+                    writer.flush();
+                });
+    }
+
+    // Ranked full-text search over title + content. engine=like runs the old full-scan baseline instead.
+    @GetMapping("/search/text")
+    public TextSearchPage searchText(@RequestParam String q,
+                                     @RequestParam(defaultValue = "20") int limit,
+                                     @RequestParam(defaultValue = "0") int offset,
+                                     @RequestParam(defaultValue = "lucene") String engine) {
+        searchStreamer.validate(limit);
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must be >= 0");
+        }
+        // Ask for one hit more than the page: if it comes back, there is a next page
+        List<FullTextIndex.Hit> hits = "like".equalsIgnoreCase(engine)
+                ? fullTextIndex.searchLike(q, limit + 1, offset)
+                : fullTextIndex.search(q, limit + 1, offset);
+        Integer nextOffset = null;
+        if (hits.size() > limit) {
+            hits = hits.subList(0, limit);
+            nextOffset = offset + limit;
+        }
+        return new TextSearchPage(q, engine, hits, nextOffset);
+    }
+
+    // Dashboard reads from author_stats: no GROUP BY over blog_posts, same cost at 1K or 10M posts
+    @GetMapping("/authors/top")
+    public List<AuthorStats.Stats> topAuthors(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > 1000) {
+            throw new IllegalArgumentException("limit must be between 1 and 1000");
+        }
+        return authorStats.top(limit);
+    }
+
+    @GetMapping("/authors/{name}/stats")
+    public ResponseEntity<AuthorStats.Stats> authorStats(@PathVariable String name) {
+        return ResponseEntity.of(authorStats.stats(name));
+    }
+
+    // Maintenance: compare author_stats with blog_posts, and recompute it if it ever drifts
+    @GetMapping("/authors/stats/verify")
+    public AuthorStats.Verification verifyAuthorStats() {
+        return authorStats.verify();
+    }
+
+    @PostMapping("/authors/stats/rebuild")
+    public AuthorStats.Verification rebuildAuthorStats() {
+        authorStats.rebuild();
+        return authorStats.verify();
+    }
+
+    // Every statement the data layer has run, most total time first (count, mean/p99/max ms, rows per query)
+    @GetMapping("/queries")
+    public List<QueryInspector.StatementSummary> queries() {
+        return queryInspector.summary();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+}
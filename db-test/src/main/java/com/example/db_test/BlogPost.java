@@ -3,6 +3,7 @@ package com.example.db_test;
 import jakarta.persistence.*;
 
 @Entity
+@EntityListeners(BlogPostCacheListener.class) // Keeps AuthorPostsCache in step with writes
 @Table(name = "blog_posts", indexes = @Index(name = "idx_author", columnList = "authorName"))
 public class BlogPost {
 
@@ -18,6 +19,10 @@ public class BlogPost {
     @Lob // Large Object (Store a lot of text)
     private String content;
 
+    // The author as last read from or written to the database, so a change of author can evict the old one too
+    @Transient
+    private String storedAuthorName;
+
     // Standard Constructors
     public BlogPost() {}
 
@@ -32,4 +37,16 @@ public class BlogPost {
     public String getTitle() { return title; }
     public String getAuthorName() { return authorName; }
     public String getContent() { return content; }
+
+    public void setAuthorName(String authorName) { this.authorName = authorName; }
+
+    // Not a getter on purpose: it is bookkeeping for BlogPostCacheListener, not part of the JSON
+    String storedAuthorName() { return storedAuthorName; }
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void rememberStoredAuthor() {
+        storedAuthorName = authorName;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.example.db_test;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+// JPA callback on BlogPost: any post written through JPA evicts its author from AuthorPostsCache.
+// A post that moved to another author is in two cached lists, so the author it had before the write is evicted too.
+// Hibernate asks Spring for this bean while the EntityManagerFactory is still being built, so the cache
+// (which needs the repository, which needs the factory) is looked up lazily.
+
+@Component
+public class BlogPostCacheListener {
+
+    private final ObjectProvider<AuthorPostsCache> cache;
+
+    public BlogPostCacheListener(ObjectProvider<AuthorPostsCache> cache) {
+        this.cache = cache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void postWritten(BlogPost post) {
+        String previous = post.storedAuthorName(); // Still the old author: listeners run before the entity's own callback
+        cache.ifAvailable(c -> {
+            c.invalidate(post.getAuthorName());
+            if (previous != null && !previous.equals(post.getAuthorName())) {
+                c.invalidate(previous);
+            }
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.db_test;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// The light-weight version of /search:
+//   1. PROJECTION: only id, title, author_name are selected. The @Lob content is read only when asked for.
+//   2. KEYSET PAGINATION: "WHERE id > :cursor ORDER BY id LIMIT n" instead of OFFSET. idx_author already
+//      sorts each author's rows by id, so page 1000 costs the same as page 1.
+//   3. STREAMING: each row goes from the JDBC cursor straight into the JSON output. Nothing is collected
+//      into a List, so the heap used by a request does not depend on how many rows it returns.
+//      H2 needs LAZY_QUERY_EXECUTION for that. It is a session setting, so it is switched off again before the
+//      pooled connection goes back: the next borrower (Hibernate, a transaction) must not inherit it.
+
+@Component
+public class BlogSearchStreamer {
+
+    // Rows pulled from the database per round-trip
+    static final int FETCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int maxPageSize;
+
+    public BlogSearchStreamer(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${blog.search.max-page-size:10000}") int maxPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.maxPageSize = maxPageSize;
+    }
+
+    // Called before the response starts, so bad input can still become a 400
+    public void validate(int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
+        }
+    }
+
+    // Writes {"author": ..., "posts": [...], "nextCursor": <id or null>}
+    // Pass nextCursor back as 'after' to get the next page. null means there is nothing left.
+    public void writePage(String author, long after, int limit, boolean withContent, OutputStream out) {
+        validate(limit);
+        String columns = withContent ? "id, title, author_name, content" : "id, title, author_name";
+        String sql = "SELECT " + columns + " FROM blog_posts WHERE author_name = ? AND id > ? ORDER BY id LIMIT ?";
+
+        try (JsonGenerator json = objectMapper.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringProperty("author", author);
+            json.writeArrayPropertyStart("posts");
+
+            // Ask for one row more than the page: if it exists, there is a next page
+            long[] lastId = {-1};
+            int[] written = {0};
+            boolean[] hasMore = {false};
+            queryLazily(con -> prepare(con, sql, author, after, limit + 1), (ResultSet rs) -> {
+                if (written[0] == limit) {
+                    hasMore[0] = true;
+                    return;
+                }
+                json.writeStartObject();
+                json.writeNumberProperty("id", rs.getLong("id"));
+                json.writeStringProperty("title", rs.getString("title"));
+                json.writeStringProperty("authorName", rs.getString("author_name"));
+                if (withContent) {
+                    json.writeName("content");
+                    try (Reader content = rs.getCharacterStream("content")) {
+                        if (content == null) json.writeNull();
+                        else json.writeString(content, -1); // Copied through a small buffer, never one big String
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                json.writeEndObject();
+                lastId[0] = rs.getLong("id");
+                written[0]++;
+            });
+
+            json.writeEndArray();
+            if (hasMore[0]) json.writeNumberProperty("nextCursor", lastId[0]);
+            else json.writeNullProperty("nextCursor");
+            json.writeEndObject();
+        }
+    }
+
+    public boolean exists(long id) {
+        Integer found = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM blog_posts WHERE id = ?", Integer.class, id);
+        return found != null && found > 0;
+    }
+
+    // The content column on demand, streamed from the LOB in chunks
+    public void writeContent(long id, Writer out) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT content FROM blog_posts WHERE id = ?");
+            ps.setLong(1, id);
+            return ps;
+        }, (ResultSet rs) -> {
+            try (Reader content = rs.getCharacterStream(1)) {
+                if (content != null) content.transferTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // H2 builds the whole result before returning the first row unless lazy execution is on
+    private void queryLazily(PreparedStatementCreator creator, RowCallbackHandler rows) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            setLazyExecution(con, true);
+            try (PreparedStatement ps = creator.createPreparedStatement(con); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.processRow(rs);
+                }
+            } finally {
+                setLazyExecution(con, false);
+            }
+            return null;
+        });
+    }
+
+    private static void setLazyExecution(Connection con, boolean lazy) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+
+    private static PreparedStatement prepare(Connection con, String sql, String author, long after, int limit)
+            throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(FETCH_SIZE);
+        ps.setString(1, author);
+        ps.setLong(2, after);
+        ps.setInt(3, limit);
+        return ps;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.db_test;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fills blog_posts with generated rows. Three ways to do it (blog.seed.mode):
+//   batch     = the original loader: one thread builds Object[] rows and calls jdbcTemplate.batchUpdate per 1000
+//   pipelined = several generator threads build batches, ONE writer thread streams them into a single
+//               connection/transaction. A bounded queue between them: generation never waits for a commit,
+//               and a slow writer cannot make the generators run out of memory.
+//   range     = no Java rows at all: H2 generates them itself with INSERT ... SELECT FROM SYSTEM_RANGE(a, b)
+// With blog.seed.defer-indexes=true, idx_author (and the full-text index, if there is one) is dropped before
+// the load and rebuilt once at the end: building one index from all the data is much cheaper than updating it
+// a million times. The author_stats trigger is always off during a load: the summary is rebuilt in one pass after it.
+
+@Component
+public class BulkLoader {
+
+    public record Report(String mode, long rows, long millis) {
+        public long rowsPerSecond() {
+            return millis == 0 ? rows : rows * 1000 / millis;
+        }
+    }
+
+    static final int AUTHORS = 5000; // We reuse authors so searches find multiple results
+
+    private static final String INSERT_SQL = "INSERT INTO blog_posts (title, author_name, content) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FullTextIndex fullTextIndex;
+    private final AuthorPostsCache authorCache;
+    private final AuthorStats authorStats;
+    private final int batchSize;
+    private final int generatorThreads;
+    private final int queueCapacity;
+    private final int commitEveryBatches;
+    private final boolean deferIndexes;
+
+    public BulkLoader(JdbcTemplate jdbcTemplate,
+                      FullTextIndex fullTextIndex,
+                      AuthorPostsCache authorCache,
+                      AuthorStats authorStats,
+                      @Value("${blog.seed.batch-size:1000}") int batchSize,
+                      @Value("${blog.seed.generator-threads:0}") int generatorThreads,
+                      @Value("${blog.seed.queue-capacity:64}") int queueCapacity,
+                      @Value("${blog.seed.commit-every-batches:1}") int commitEveryBatches,
+                      @Value("${blog.seed.defer-indexes:true}") boolean deferIndexes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fullTextIndex = fullTextIndex;
+        this.authorCache = authorCache;
+        this.authorStats = authorStats;
+        this.batchSize = batchSize;
+        // 0 = one generator per core
+        this.generatorThreads = generatorThreads > 0 ? generatorThreads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity;
+        this.commitEveryBatches = commitEveryBatches;
+        this.deferIndexes = deferIndexes;
+    }
+
+    public Report load(String mode, long rows) {
+        // Checked before anything is torn down
+        Runnable loader = switch (mode) {
+            case "batch" -> () -> loadBatch(rows);
+            case "pipelined" -> () -> loadPipelined(rows);
+            case "range" -> () -> loadRange(rows);
+            default -> throw new IllegalArgumentException("Unknown blog.seed.mode: " + mode + " (batch, pipelined, range)");
+        };
+
+        long start = System.currentTimeMillis();
+        boolean hadFullText = false;
+        try {
+            if (deferIndexes) {
+                jdbcTemplate.execute("DROP INDEX IF EXISTS idx_author");
+                hadFullText = fullTextIndex.drop();
+            }
+            authorStats.suspend();
+            loader.run();
+        } finally {
+            // Also after a failed load: whatever rows made it in get their indexes and their summary, and the
+            // database is never left without them (the next start would skip the seed and never repair it)
+            if (deferIndexes) {
+                long indexStart = System.currentTimeMillis();
+                jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_author ON blog_posts(author_name)");
+                System.out.println("Rebuilt idx_author in " + (System.currentTimeMillis() - indexStart) + "ms");
+                if (hadFullText) {
+                    fullTextIndex.create();
+                }
+            }
+            authorStats.rebuild();
+            authorCache.invalidateAll(); // Plain JDBC bypasses the JPA listener that normally does this
+        }
+        return new Report(mode, rows, System.currentTimeMillis() - start);
+    }
+
+    static Object[] row(long i) {
+        return new Object[]{
+            "Java Tutorial #" + i,
+            "Author" + (i % AUTHORS),
+            "Content for post " + i
+        };
+    }
+
+    // --- batch: the original single-threaded loader ---
+    private void loadBatch(long rows) {
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (long i = 1; i <= rows; i++) {
+            batch.add(row(i));
+            if (batch.size() == batchSize || i == rows) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                progress(i, rows, batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    // --- pipelined: N generators -> bounded queue -> 1 writer ---
+    private void loadPipelined(long rows) {
+        BlockingQueue<List<Object[]>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        List<Object[]> done = List.of(); // Each generator sends this (by identity) when it runs out of work
+        AtomicLong nextRow = new AtomicLong(1);
+        AtomicInteger threadId = new AtomicInteger();
+
+        ExecutorService generators = Executors.newFixedThreadPool(generatorThreads, r -> {
+            Thread t = new Thread(r, "seed-generator-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int g = 0; g < generatorThreads; g++) {
+                running.add(generators.submit(() -> {
+                    try {
+                        // Claim the next block of row numbers until none are left
+                        long from;
+                        while ((from = nextRow.getAndAdd(batchSize)) <= rows) {
+                            long to = Math.min(rows, from + batchSize - 1);
+                            List<Object[]> batch = new ArrayList<>((int) (to - from + 1));
+                            for (long i = from; i <= to; i++) {
+                                batch.add(row(i));
+                            }
+                            queue.put(batch); // Blocks only if the writer is a full queue behind
+                        }
+                    } finally {
+                        queue.put(done); // Even after a failure, so the writer never waits forever
+                    }
+                    return null;
+                }));
+            }
+
+            // The writer: this thread, one connection, one prepared statement, a commit every N batches
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                boolean autoCommit = con.getAutoCommit();
+                con.setAutoCommit(false);
+                boolean committed = false;
+                try (PreparedStatement ps = con.prepareStatement(INSERT_SQL)) {
+                    int finished = 0;
+                    long written = 0;
+                    int uncommitted = 0;
+                    while (finished < generatorThreads) {
+                        List<Object[]> batch = queue.take();
+                        if (batch == done) {
+                            finished++;
+                            continue;
+                        }
+                        for (Object[] r : batch) {
+                            ps.setString(1, (String) r[0]);
+                            ps.setString(2, (String) r[1]);
+                            ps.setString(3, (String) r[2]);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                        written += batch.size();
+                        if (++uncommitted == commitEveryBatches) {
+                            con.commit();
+                            uncommitted = 0;
+                        }
+                        progress(written, rows, batch.size());
+                    }
+                    con.commit();
+                    committed = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Seeding interrupted", e);
+                } finally {
+                    // Any failure: drop the open batches first, setAutoCommit(true) would commit them
+                    if (!committed) con.rollback();
+                    con.setAutoCommit(autoCommit);
+                }
+                return null;
+            });
+
+            for (Future<?> generator : running) {
+                generator.get(); // Surface any generator failure
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Seeding interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A seed generator failed", e.getCause());
+        } finally {
+            generators.shutdownNow(); // Unblocks generators stuck on a full queue if the writer failed
+        }
+    }
+
+    // --- range: let H2 generate the rows, no JDBC round-trip per row ---
+    private void loadRange(long rows) {
+        String sql = "INSERT INTO blog_posts (title, author_name, content) "
+                + "SELECT 'Java Tutorial #' || X, 'Author' || MOD(X, " + AUTHORS + "), 'Content for post ' || X "
+                + "FROM SYSTEM_RANGE(?, ?)";
+        long chunk = (long) batchSize * commitEveryBatches; // One statement (and one transaction) per chunk
+        for (long from = 1; from <= rows; from += chunk) {
+            long to = Math.min(rows, from + chunk - 1);
+            jdbcTemplate.update(sql, from, to);
+            progress(to, rows, to - from + 1);
+        }
+    }
+
+    // Prints roughly every 10%
+    private static void progress(long done, long total, long step) {
+        long every = Math.max(1, total / 10);
+        if (done / every != (done - step) / every || done == total) {
+            System.out.println("Inserted " + done + " rows...");
+        }
+    }
+}
@@ -1,52 +1,50 @@
 package com.example.db_test;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import java.util.ArrayList;
-import java.util.List;
 
 @Component
 public class DataSeeder implements CommandLineRunner {
 
     private final JdbcTemplate jdbcTemplate;
-
-    public DataSeeder(JdbcTemplate jdbcTemplate) {
+    private final BulkLoader bulkLoader;
+    private final AuthorStats authorStats;
+    private final long rows;
+    private final String mode;
+
+    public DataSeeder(JdbcTemplate jdbcTemplate,
+                      BulkLoader bulkLoader,
+                      AuthorStats authorStats,
+                      @Value("${blog.seed.rows:1000000}") long rows,
+                      @Value("${blog.seed.mode:pipelined}") String mode) {
         this.jdbcTemplate = jdbcTemplate;
+        this.bulkLoader = bulkLoader;
+        this.authorStats = authorStats;
+        this.rows = rows;
+        this.mode = mode;
     }
 
     @Override
     public void run(String... args) {
+        // 0. author_stats + its trigger, before anything writes a post
+        boolean newStats = authorStats.install();
+
         // 1. Check if data exists so we don't re-seed on restart
-        Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM blog_posts", Integer.class);
-        if (count != null && count > 100_000) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM blog_posts", Long.class);
+        if (count != null && count >= Math.min(rows, 100_000)) {
+            if (newStats && count > 0) {
+                authorStats.rebuild(); // Posts from before author_stats existed
+            }
             System.out.println("Data already loaded (" + count + " rows). Ready.");
             return;
         }
 
-        // 2. Insert 1 Million Rows (Batch Insert for speed)
-        System.out.println("--- STARTING SEED (1 MILLION ROWS) - PLEASE WAIT ~30s ---");
-        long start = System.currentTimeMillis();
-
-        String sql = "INSERT INTO blog_posts (title, author_name, content) VALUES (?, ?, ?)";
-        List<Object[]> batch = new ArrayList<>();
-
-        for (int i = 1; i <= 1_000_000; i++) {
-            batch.add(new Object[]{
-                "Java Tutorial #" + i,
-                "Author" + (i % 5000), // We reuse authors so searches find multiple results
-                "Content for post " + i
-            });
-
-            // Commit every 1000 rows
-            if (i % 1000 == 0) {
-                jdbcTemplate.batchUpdate(sql, batch);
-                batch.clear();
-                if (i % 200_000 == 0) System.out.println("Inserted " + i + " rows...");
-            }
-        }
+        // 2. Insert the rows (blog.seed.mode picks how, see BulkLoader). It ends with one author_stats rebuild.
+        System.out.println("--- STARTING SEED (" + rows + " ROWS, MODE " + mode + ") ---");
+        BulkLoader.Report report = bulkLoader.load(mode, rows);
 
-        long end = System.currentTimeMillis();
-        System.out.println("--- SEEDING COMPLETE in " + (end - start) + "ms ---");
+        System.out.println("--- SEEDING COMPLETE in " + report.millis() + "ms (" + report.rowsPerSecond() + " rows/s) ---");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package com.example.db_test;
+
+import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import java.util.List;
+import java.util.Locale;
+
+// Full-text search over title + content, using H2's built-in Lucene integration (FullTextLucene):
+//   1. The Lucene index lives on disk next to the database: ./data/blogdb.mv.db -> ./data/blogdb/ (index files)
+//   2. H2 puts a trigger on blog_posts, so every INSERT/UPDATE/DELETE updates the index right away
+//   3. FTL_SEARCH_DATA returns primary keys ranked by Lucene's relevance score
+// The baseline it replaces is LIKE '%term%', which has to read every row (and every LOB).
+
+@Component
+public class FullTextIndex {
+
+    public record Hit(long id, String title, String authorName, double score) {}
+
+    private static final String SCHEMA = "PUBLIC";
+    private static final String TABLE = "BLOG_POSTS";
+
+    private static final RowMapper<Hit> HIT = (rs, i) ->
+            new Hit(rs.getLong("id"), rs.getString("title"), rs.getString("author_name"), rs.getDouble("score"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    public FullTextIndex(JdbcTemplate jdbcTemplate, @Value("${blog.fulltext.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    // Runs after DataSeeder: indexes whatever is already in the table, once. Later restarts reuse the files.
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        if (enabled && !exists()) {
+            create();
+        }
+    }
+
+    public boolean exists() {
+        init();
+        Integer found = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM FTL.INDEXES WHERE SCHEMA = ? AND \"TABLE\" = ?", Integer.class, SCHEMA, TABLE);
+        return found != null && found > 0;
+    }
+
+    // Indexes every existing row in one pass (one Lucene commit at the end), then installs the trigger
+    public void create() {
+        init();
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute("CALL FTL_CREATE_INDEX('" + SCHEMA + "', '" + TABLE + "', 'TITLE,CONTENT')");
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM blog_posts", Long.class);
+        System.out.println("Full-text index built over " + rows + " posts in " + millis + "ms ("
+                + (rows * 1000 / millis) + " docs/s)");
+    }
+
+    // Removes the trigger and the index. Bulk loads do this first: the trigger commits Lucene once per row.
+    public boolean drop() {
+        if (!exists()) {
+            return false;
+        }
+        jdbcTemplate.execute("CALL FTL_DROP_INDEX('" + SCHEMA + "', '" + TABLE + "')");
+        return true;
+    }
+
+    // Ranked hits for a Lucene query ("java", "tutorial AND 42", "titl*", ...), best first
+    public List<Hit> search(String query, int limit, int offset) {
+        try {
+            return jdbcTemplate.query(
+                    "SELECT p.id, p.title, p.author_name, ft.SCORE AS score "
+                            + "FROM FTL_SEARCH_DATA(?, ?, ?) ft JOIN blog_posts p ON p.id = CAST(ft.KEYS[1] AS BIGINT) "
+                            + "ORDER BY ft.SCORE DESC, p.id",
+                    HIT, query, limit, offset);
+        } catch (DataAccessException e) {
+            // Only a query the Lucene parser does not accept (a lone "AND", an open quote) is the client's fault.
+            // Anything else (no connection, a broken index) is ours and stays a 5xx.
+            if (isQuerySyntaxError(e)) {
+                throw new IllegalArgumentException("Invalid full-text query: " + query, e);
+            }
+            throw e;
+        }
+    }
+
+    // H2 wraps the parser's exception in a plain SQLException (SQL state FULLTEXT), so look at the causes
+    private static boolean isQuerySyntaxError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryNodeException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The baseline: a full scan of title and content. Every hit scores the same.
+    // The term is matched literally: a '%' or '_' typed by the user is not a wildcard.
+    public List<Hit> searchLike(String term, int limit, int offset) {
+        String pattern = "%" + escapeLike(term.toLowerCase(Locale.ROOT)) + "%";
+        return jdbcTemplate.query(
+                "SELECT id, title, author_name, 1.0 AS score FROM blog_posts "
+                        + "WHERE LOWER(title) LIKE ? ESCAPE '\\' OR LOWER(content) LIKE ? ESCAPE '\\' "
+                        + "ORDER BY id LIMIT ? OFFSET ?",
+                HIT, pattern, pattern, limit, offset);
+    }
+
+    static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Registers the FTL_* functions and the FTL schema (a no-op after the first time)
+    private void init() {
+        jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS FTL_INIT FOR 'org.h2.fulltext.FullTextLucene.init'");
+        jdbcTemplate.execute("CALL FTL_INIT()");
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.db_test;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.Arrays;
+
+// Wraps the DataSource bean (Hikari) in a thin JDBC proxy, so EVERY statement is measured: Hibernate's,
+// JdbcTemplate's and our own ConnectionCallbacks alike. Nothing else has to change.
+//   DataSource.getConnection()         -> connection-acquire time
+//   Connection.prepareStatement(sql)   -> a statement that knows its SQL (and remembers its parameters, for EXPLAIN)
+//   Statement.execute*()               -> latency, slow-query log, N+1 counting
+//   Statement.executeBatch()           -> batch size
+//   ResultSet.next() ... close()       -> rows fetched
+// It replaces spring.jpa.show-sql: nothing is printed unless it is slow or repeated.
+// blog.jdbc.instrumentation.enabled=false leaves the DataSource untouched (zero overhead).
+
+@Component
+public class JdbcInstrumentation implements BeanPostProcessor {
+
+    private final ObjectProvider<QueryInspector> inspectorProvider;
+    private final boolean enabled;
+    private volatile QueryInspector inspector;
+
+    public JdbcInstrumentation(ObjectProvider<QueryInspector> inspectorProvider, Environment environment) {
+        this.inspectorProvider = inspectorProvider;
+        this.enabled = environment.getProperty("blog.jdbc.instrumentation.enabled", Boolean.class, true);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource dataSource) || Proxy.isProxyClass(bean.getClass())) {
+            return bean;
+        }
+        // AutoCloseable too, so Spring still closes the pool on shutdown
+        Class<?>[] interfaces = bean instanceof AutoCloseable
+                ? new Class<?>[]{DataSource.class, AutoCloseable.class}
+                : new Class<?>[]{DataSource.class};
+        return Proxy.newProxyInstance(getClass().getClassLoader(), interfaces, new DataSourceHandler(dataSource));
+    }
+
+    // The inspector needs the MeterRegistry, which is not ready yet when the DataSource is created: resolve it lazily
+    private QueryInspector inspector(DataSource target) {
+        QueryInspector current = inspector;
+        if (current == null) {
+            current = inspectorProvider.getObject();
+            current.planSource(target);
+            inspector = current;
+        }
+        return current;
+    }
+
+    // Proxy.newProxyInstance looks the proxy class up on every call; a JDBC-heavy request creates dozens of
+    // proxies, so keep each proxy class's constructor instead
+    private static final ClassValue<Constructor<?>> PROXY_CONSTRUCTORS = new ClassValue<>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                return Proxy.newProxyInstance(JdbcInstrumentation.class.getClassLoader(), new Class<?>[]{type}, (p, m, a) -> null)
+                        .getClass().getConstructor(InvocationHandler.class);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private static Object wrap(Class<?> type, InvocationHandler handler) {
+        try {
+            return PROXY_CONSTRUCTORS.get(type).newInstance(handler);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause(); // The SQLException itself, not the reflection wrapper
+        }
+    }
+
+    private final class DataSourceHandler implements InvocationHandler {
+        private final DataSource target;
+
+        DataSourceHandler(DataSource target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("getConnection")) {
+                return call(target, method, args);
+            }
+            long start = System.nanoTime();
+            Connection connection = (Connection) call(target, method, args);
+            QueryInspector inspector = inspector(target);
+            inspector.acquired(System.nanoTime() - start);
+            return wrap(Connection.class, new ConnectionHandler(connection, inspector));
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final QueryInspector inspector;
+
+        ConnectionHandler(Connection target, QueryInspector inspector) {
+            this.target = target;
+            this.inspector = inspector;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(target, method, args);
+            String name = method.getName();
+            if (name.equals("prepareStatement") || name.equals("prepareCall")) {
+                return statementProxy(method, result, inspector.statement((String) args[0]));
+            }
+            if (name.equals("createStatement")) {
+                return statementProxy(method, result, null); // Plain Statement: the SQL comes with each execute
+            }
+            return result;
+        }
+
+        private Object statementProxy(Method method, Object statement, QueryInspector.Statement sql) {
+            // Statement, PreparedStatement or CallableStatement: whatever the method promised to return
+            return wrap(method.getReturnType(), new StatementHandler(statement, inspector, sql));
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Object target;
+        private final QueryInspector inspector;
+        private QueryInspector.Statement prepared; // null for a plain Statement
+        private Object[] parameters;
+        private int batched;
+        private ResultSet lastResultSet;
+        private Object lastResultSetProxy;
+
+        StatementHandler(Object target, QueryInspector inspector, QueryInspector.Statement prepared) {
+            this.target = target;
+            this.inspector = inspector;
+            this.prepared = prepared;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            // PreparedStatement.setXxx(index, value, ...): keep the value for the slow-query EXPLAIN
+            if (prepared != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameter(index, args[1]);
+                return call(target, method, args);
+            }
+            switch (name) {
+                case "clearParameters" -> parameters = null;
+                case "addBatch" -> {
+                    batched++;
+                    if (prepared == null && args != null) {
+                        prepared = inspector.statement((String) args[0]); // Plain Statement batch: name it after its first SQL
+                    }
+                }
+                case "clearBatch" -> batched = 0;
+                case "executeBatch", "executeLargeBatch" -> {
+                    long start = System.nanoTime();
+                    Object result = call(target, method, args);
+                    inspector.batch(prepared != null ? prepared : inspector.statement(null), batched, System.nanoTime() - start);
+                    batched = 0;
+                    return result;
+                }
+                case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate" -> {
+                    QueryInspector.Statement statement = args != null && args.length > 0 && args[0] instanceof String sql
+                            ? inspector.statement(sql)
+                            : prepared;
+                    long start = System.nanoTime();
+                    Object result = call(target, method, args);
+                    inspector.executed(statement, System.nanoTime() - start, parameters);
+                    return result instanceof ResultSet rs ? resultSet(rs, statement) : result;
+                }
+                case "getResultSet" -> {
+                    Object result = call(target, method, args);
+                    return result instanceof ResultSet rs ? resultSet(rs, prepared) : result;
+                }
+                default -> { }
+            }
+            return call(target, method, args);
+        }
+
+        private void parameter(int index, Object value) {
+            if (parameters == null || parameters.length < index) {
+                parameters = parameters == null ? new Object[index] : Arrays.copyOf(parameters, index);
+            }
+            parameters[index - 1] = value;
+        }
+
+        private Object resultSet(ResultSet rs, QueryInspector.Statement statement) {
+            if (rs == lastResultSet) {
+                return lastResultSetProxy; // execute() + getResultSet() twice: still one result set to count
+            }
+            lastResultSet = rs;
+            lastResultSetProxy = wrap(ResultSet.class, new ResultSetHandler(rs, inspector, statement));
+            return lastResultSetProxy;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final QueryInspector inspector;
+        private final QueryInspector.Statement statement;
+        private long rows;
+        private boolean recorded;
+
+        ResultSetHandler(ResultSet target, QueryInspector inspector, QueryInspector.Statement statement) {
+            this.target = target;
+            this.inspector = inspector;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(target, method, args);
+            switch (method.getName()) {
+                case "next" -> {
+                    if (Boolean.TRUE.equals(result)) {
+                        rows++;
+                    }
+                }
+                case "close" -> {
+                    if (!recorded && statement != null) {
+                        recorded = true;
+                        inspector.fetched(statement, rows);
+                    }
+                }
+                default -> { }
+            }
+            return result;
+        }
+    }
+}
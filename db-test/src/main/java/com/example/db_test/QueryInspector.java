@@ -0,0 +1,309 @@
+package com.example.db_test;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// What the JDBC layer reports to (see JdbcInstrumentation, which wraps the DataSource):
+//   1. PER STATEMENT: a latency histogram (blog.jdbc.statement) and rows fetched (blog.jdbc.rows), tagged with the SQL
+//   2. PER CONNECTION: how long getConnection() waited for the pool (blog.jdbc.connection.acquire)
+//   3. PER BATCH: how many rows each executeBatch() sent (blog.jdbc.batch.size)
+//   4. SLOW QUERY LOG: only statements over blog.jdbc.slow-threshold are printed, with H2's EXPLAIN of them.
+//      The plan is fetched on a background thread, so the slow request does not get slower.
+//   5. N+1 DETECTION: per HTTP request (QueryTrackingFilter), a SELECT that runs blog.jdbc.n-plus-one-threshold
+//      times or more is reported. That is usually a query in a loop that should have been one query.
+// The hot path is a map lookup, a Timer.record and a ThreadLocal.get: cheap enough to leave on (readme Phase 8).
+
+@Component
+public class QueryInspector implements DisposableBean {
+
+    public record StatementSummary(String sql, long count, double meanMs, double p99Ms, double maxMs,
+                                   double totalMs, double meanRows) {}
+
+    public record Repeated(String sql, int count) {}
+
+    public record RequestReport(String request, int statements, long millis, List<Repeated> nPlusOne) {}
+
+    // Meters for one distinct SQL string (Hibernate and JdbcTemplate always send the same text for the same query)
+    static final class Statement {
+        final String sql;
+        final boolean select;
+        final Timer timer;
+        final DistributionSummary rows;
+        final AtomicLong lastExplain = new AtomicLong();
+
+        Statement(String sql, boolean select, Timer timer, DistributionSummary rows) {
+            this.sql = sql;
+            this.select = select;
+            this.timer = timer;
+            this.rows = rows;
+        }
+    }
+
+    private static final class RequestQueries {
+        final String request;
+        final long start = System.nanoTime();
+        final Map<Statement, int[]> counts = new HashMap<>();
+        int statements;
+
+        RequestQueries(String request) {
+            this.request = request;
+        }
+    }
+
+    private static final long EXPLAIN_EVERY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final MeterRegistry registry;
+    private final long slowNanos;
+    private final boolean explain;
+    private final int nPlusOneThreshold;
+    private final int maxStatements;
+
+    private final Map<String, Statement> statements = new ConcurrentHashMap<>();
+    private final Statement other; // Everything past blog.jdbc.max-statements distinct SQL strings
+    private final Timer acquire;
+    private final DistributionSummary batchSize;
+    private final Counter slowQueries;
+    private final Counter nPlusOnes;
+    private final ThreadLocal<RequestQueries> currentRequest = new ThreadLocal<>();
+    private final ThreadPoolExecutor explainer;
+    private volatile DataSource planSource;
+
+    public QueryInspector(MeterRegistry registry,
+                          @Value("${blog.jdbc.slow-threshold:200ms}") Duration slowThreshold,
+                          @Value("${blog.jdbc.explain:true}") boolean explain,
+                          @Value("${blog.jdbc.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                          @Value("${blog.jdbc.max-statements:200}") int maxStatements) {
+        this.registry = registry;
+        this.slowNanos = slowThreshold.toNanos();
+        this.explain = explain;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.maxStatements = maxStatements;
+        this.other = newStatement("other", false);
+        this.acquire = Timer.builder("blog.jdbc.connection.acquire")
+                .description("Time spent in DataSource.getConnection(), i.e. waiting for the pool")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.batchSize = DistributionSummary.builder("blog.jdbc.batch.size")
+                .description("Statements sent per executeBatch()")
+                .register(registry);
+        this.slowQueries = Counter.builder("blog.jdbc.slow").register(registry);
+        this.nPlusOnes = Counter.builder("blog.jdbc.n_plus_one").register(registry);
+
+        // One thread, a short queue, and anything beyond that is dropped: the log must never hold up a query
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16), r -> {
+            Thread t = new Thread(r, "slow-query-explain");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    // The un-instrumented DataSource: EXPLAIN must not show up in the statistics it explains
+    void planSource(DataSource dataSource) {
+        this.planSource = dataSource;
+    }
+
+    Statement statement(String sql) {
+        Statement statement = statements.get(sql);
+        if (statement != null) {
+            return statement;
+        }
+        if (sql == null || statements.size() >= maxStatements) {
+            return other; // Keeps the number of tagged meters bounded (SQL built with literals would grow forever)
+        }
+        return statements.computeIfAbsent(sql, s -> newStatement(s, isSelect(s)));
+    }
+
+    private Statement newStatement(String sql, boolean select) {
+        String tag = compact(sql);
+        Timer timer = Timer.builder("blog.jdbc.statement")
+                .tag("sql", tag)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        DistributionSummary rows = DistributionSummary.builder("blog.jdbc.rows")
+                .tag("sql", tag)
+                .description("Rows read from one result set")
+                .register(registry);
+        return new Statement(sql, select, timer, rows);
+    }
+
+    // --- called by JdbcInstrumentation ---
+
+    void acquired(long nanos) {
+        acquire.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void executed(Statement statement, long nanos, Object[] parameters) {
+        statement.timer.record(nanos, TimeUnit.NANOSECONDS);
+
+        RequestQueries request = currentRequest.get();
+        if (request != null) {
+            request.statements++;
+            if (statement.select && statement != other) {
+                request.counts.computeIfAbsent(statement, s -> new int[1])[0]++;
+            }
+        }
+
+        if (nanos >= slowNanos) {
+            slow(statement, nanos, parameters, request);
+        }
+    }
+
+    void batch(Statement statement, int size, long nanos) {
+        batchSize.record(size);
+        executed(statement, nanos, null);
+    }
+
+    void fetched(Statement statement, long rows) {
+        statement.rows.record(rows);
+    }
+
+    // --- slow query log ---
+
+    private void slow(Statement statement, long nanos, Object[] parameters, RequestQueries request) {
+        slowQueries.increment();
+        String where = request == null ? "" : " [" + request.request + "]";
+        String params = parameters == null ? "" : " params=" + Arrays.toString(parameters);
+        System.out.println("SLOW QUERY " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms" + where + ": "
+                + compact(statement.sql) + params);
+
+        // Each statement is explained at most once a minute, however often it is slow
+        long now = System.nanoTime();
+        long last = statement.lastExplain.get();
+        if (explain && statement != other && explainable(statement.sql)
+                && (last == 0 || now - last >= EXPLAIN_EVERY_NANOS)
+                && statement.lastExplain.compareAndSet(last, now)) {
+            Object[] copy = parameters == null ? new Object[0] : parameters.clone();
+            explainer.execute(() -> System.out.println("  PLAN for " + compact(statement.sql) + ":\n    "
+                    + plan(statement.sql, copy).replace("\n", "\n    ")));
+        }
+    }
+
+    String plan(String sql, Object[] parameters) {
+        DataSource dataSource = planSource;
+        if (dataSource == null) {
+            return "(no data source)";
+        }
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setObject(i + 1, parameters[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1));
+                }
+            }
+            return plan.toString();
+        } catch (Exception e) {
+            return "(EXPLAIN failed: " + e.getMessage() + ")";
+        }
+    }
+
+    // --- N+1 detection, one HTTP request at a time (QueryTrackingFilter) ---
+
+    public void beginRequest(String request) {
+        currentRequest.set(new RequestQueries(request));
+    }
+
+    public RequestReport endRequest() {
+        RequestQueries request = currentRequest.get();
+        currentRequest.remove();
+        if (request == null) {
+            return null;
+        }
+        List<Repeated> repeated = new ArrayList<>();
+        request.counts.forEach((statement, count) -> {
+            if (count[0] >= nPlusOneThreshold) {
+                repeated.add(new Repeated(statement.sql, count[0]));
+            }
+        });
+        repeated.sort(Comparator.comparingInt(Repeated::count).reversed());
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.start);
+
+        for (Repeated r : repeated) {
+            nPlusOnes.increment();
+            System.out.println("N+1 SUSPECTED [" + request.request + "]: the same SELECT ran " + r.count()
+                    + " times in one request (" + request.statements + " statements, " + millis + "ms): " + compact(r.sql()));
+        }
+        return new RequestReport(request.request, request.statements, millis, repeated);
+    }
+
+    // --- reporting ---
+
+    // Every statement seen so far, the most expensive (by total time) first
+    public List<StatementSummary> summary() {
+        List<StatementSummary> summary = new ArrayList<>();
+        List<Statement> all = new ArrayList<>(statements.values());
+        all.add(other);
+        for (Statement s : all) {
+            HistogramSnapshot snapshot = s.timer.takeSnapshot();
+            if (snapshot.count() == 0) {
+                continue;
+            }
+            summary.add(new StatementSummary(compact(s.sql), snapshot.count(),
+                    snapshot.mean(TimeUnit.MILLISECONDS), p99(snapshot), snapshot.max(TimeUnit.MILLISECONDS),
+                    snapshot.total(TimeUnit.MILLISECONDS), s.rows.count() == 0 ? 0 : s.rows.mean()));
+        }
+        summary.sort(Comparator.comparingDouble(StatementSummary::totalMs).reversed());
+        return summary;
+    }
+
+    // Upper bound of the histogram bucket holding the 99th percentile
+    private static double p99(HistogramSnapshot snapshot) {
+        double target = snapshot.count() * 0.99;
+        for (CountAtBucket bucket : snapshot.histogramCounts()) {
+            if (bucket.count() >= target) {
+                return bucket.bucket(TimeUnit.MILLISECONDS);
+            }
+        }
+        return snapshot.max(TimeUnit.MILLISECONDS);
+    }
+
+    static String compact(String sql) {
+        String oneLine = sql.replaceAll("\\s+", " ").trim();
+        return oneLine.length() <= 200 ? oneLine : oneLine.substring(0, 197) + "...";
+    }
+
+    private static boolean isSelect(String sql) {
+        String s = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return s.startsWith("select") || s.startsWith("with");
+    }
+
+    private static boolean explainable(String sql) {
+        String s = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return s.startsWith("select") || s.startsWith("with") || s.startsWith("insert")
+                || s.startsWith("update") || s.startsWith("delete") || s.startsWith("merge");
+    }
+
+    @Override
+    public void destroy() {
+        explainer.shutdownNow();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.db_test;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+
+// Opens a per-request query tally in QueryInspector so repeated SELECTs (N+1) can be reported per endpoint.
+// Statements that run on another thread (a StreamingResponseBody, the seeder) are measured but not tallied here.
+
+@Component
+public class QueryTrackingFilter extends OncePerRequestFilter {
+
+    private final QueryInspector inspector;
+
+    public QueryTrackingFilter(QueryInspector inspector) {
+        this.inspector = inspector;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        inspector.beginRequest(request.getMethod() + " " + request.getRequestURI());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            inspector.endRequest();
+        }
+    }
+}
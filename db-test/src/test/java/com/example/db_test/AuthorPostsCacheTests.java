@@ -0,0 +1,115 @@
+package com.example.db_test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:author-cache",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "blog.seed.rows=0",
+        "blog.fulltext.enabled=false",
+        "blog.cache.max-posts=100"
+})
+class AuthorPostsCacheTests {
+
+    @Autowired
+    private BlogRepository repository;
+
+    @Autowired
+    private AuthorPostsCache cache;
+
+    @BeforeEach
+    void reset() {
+        repository.deleteAll();
+        cache.invalidateAll();
+    }
+
+    private void posts(String author, int count) {
+        List<BlogPost> posts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            posts.add(new BlogPost("Post " + i, author, "Content " + i));
+        }
+        repository.saveAll(posts);
+    }
+
+    @Test
+    void aPopularAuthorIsLoadedOnceEvenWhenEveryoneAsksAtOnce() throws Exception {
+        posts("Ada", 20);
+        long loadsBefore = cache.stats().loadCount();
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<List<BlogPost>>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            results.add(pool.submit(() -> {
+                go.await();
+                return cache.get("Ada");
+            }));
+        }
+        go.countDown();
+        for (Future<List<BlogPost>> result : results) {
+            assertEquals(20, result.get().size());
+        }
+        pool.shutdown();
+
+        assertEquals(1, cache.stats().loadCount() - loadsBefore);
+        assertEquals(20, cache.cachedPosts());
+        assertTrue(cache.estimatedBytes() > 0);
+    }
+
+    @Test
+    void savingAPostEvictsItsAuthorOnly() {
+        posts("Ada", 3);
+        posts("Linus", 2);
+        assertEquals(3, cache.get("Ada").size());
+        assertEquals(2, cache.get("Linus").size());
+
+        repository.save(new BlogPost("Fresh", "Ada", "New"));
+
+        long missesBefore = cache.stats().missCount();
+        assertEquals(4, cache.get("Ada").size()); // Reloaded, not stale
+        assertEquals(2, cache.get("Linus").size()); // Still cached
+        assertEquals(1, cache.stats().missCount() - missesBefore);
+    }
+
+    @Test
+    void movingAPostToAnotherAuthorEvictsBothAuthors() {
+        posts("Ada", 2);
+        posts("Linus", 1);
+        assertEquals(2, cache.get("Ada").size());
+        assertEquals(1, cache.get("Linus").size());
+
+        BlogPost moved = repository.findByAuthorName("Ada").get(0);
+        moved.setAuthorName("Linus");
+        repository.save(moved);
+
+        assertEquals(1, cache.get("Ada").size()); // The old author's list no longer has it
+        assertEquals(2, cache.get("Linus").size());
+    }
+
+    @Test
+    void staysWithinItsPostBudget() {
+        for (int a = 0; a < 10; a++) {
+            posts("Author" + a, 30);
+        }
+        for (int a = 0; a < 10; a++) {
+            assertEquals(30, cache.get("Author" + a).size());
+        }
+
+        assertTrue(cache.cachedPosts() <= 100); // max-posts=100 holds at most 3 of these authors
+        assertTrue(cache.stats().evictionCount() >= 7);
+        assertTrue(cache.stats().evictionWeight() >= 7 * 30);
+    }
+}
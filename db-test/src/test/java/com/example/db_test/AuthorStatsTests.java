@@ -0,0 +1,161 @@
+package com.example.db_test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:author-stats",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "blog.seed.rows=0",
+        "blog.fulltext.enabled=false"
+})
+class AuthorStatsTests {
+
+    @Autowired
+    private BlogRepository repository;
+
+    @Autowired
+    private AuthorStats authorStats;
+
+    @Autowired
+    private BulkLoader bulkLoader;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void reset() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void followsEveryInsertAndDelete() {
+        BlogPost first = repository.save(new BlogPost("First", "Ada", "a"));
+        BlogPost second = repository.save(new BlogPost("Second", "Ada", "b"));
+        repository.save(new BlogPost("Only", "Linus", "c"));
+
+        AuthorStats.Stats ada = authorStats.stats("Ada").orElseThrow();
+        assertEquals(2, ada.postCount());
+        assertEquals(second.getId(), ada.latestPostId());
+        assertEquals("Second", ada.latestTitle());
+
+        // Deleting the latest post falls back to the one before it
+        repository.delete(second);
+        ada = authorStats.stats("Ada").orElseThrow();
+        assertEquals(1, ada.postCount());
+        assertEquals(first.getId(), ada.latestPostId());
+        assertEquals("First", ada.latestTitle());
+
+        // The last post of an author removes the author
+        repository.delete(first);
+        assertTrue(authorStats.stats("Ada").isEmpty());
+        assertTrue(authorStats.verify().consistent());
+    }
+
+    @Test
+    void movingAPostToAnotherAuthorMovesItsCount() {
+        repository.save(new BlogPost("Stays", "Linus", "b"));
+        BlogPost post = repository.save(new BlogPost("Moved", "Ada", "a")); // Newer than Linus's post
+
+        jdbcTemplate.update("UPDATE blog_posts SET author_name = 'Linus' WHERE id = ?", post.getId());
+
+        assertTrue(authorStats.stats("Ada").isEmpty());
+        assertEquals(2, authorStats.stats("Linus").orElseThrow().postCount());
+        assertEquals("Moved", authorStats.stats("Linus").orElseThrow().latestTitle());
+        assertTrue(authorStats.verify().consistent());
+    }
+
+    @Test
+    void aBulkLoadIsSummarisedInOnePassAndRanked() {
+        bulkLoader.load("range", 12_000); // 5000 authors: Author1..Author2000 get 3 posts, the rest 2
+
+        AuthorStats.Verification verification = authorStats.verify();
+        assertTrue(verification.consistent());
+        assertEquals(BulkLoader.AUTHORS, verification.authors());
+
+        List<AuthorStats.Stats> top = authorStats.top(3);
+        assertEquals(List.of("Author1", "Author10", "Author100"), top.stream().map(AuthorStats.Stats::authorName).toList());
+        assertEquals(3, top.get(0).postCount());
+        assertEquals("Java Tutorial #10001", top.get(0).latestTitle()); // The last row generated for Author1
+
+        // The trigger is back on after the load
+        repository.save(new BlogPost("Extra", "Author4999", "x"));
+        assertEquals(3, authorStats.stats("Author4999").orElseThrow().postCount());
+    }
+
+    @Test
+    void verifySpotsDriftAndRebuildRepairsIt() {
+        repository.save(new BlogPost("One", "Ada", "a"));
+        repository.save(new BlogPost("Two", "Grace", "b"));
+
+        // Writes that slip past the trigger (here: a deliberately corrupted summary)
+        jdbcTemplate.update("UPDATE author_stats SET post_count = 42 WHERE author_name = 'Ada'");
+        jdbcTemplate.update("INSERT INTO author_stats (author_name, post_count) VALUES ('Ghost', 1)");
+        jdbcTemplate.update("DELETE FROM author_stats WHERE author_name = 'Grace'");
+
+        AuthorStats.Verification drift = authorStats.verify();
+        assertFalse(drift.consistent());
+        assertEquals(3, drift.mismatches());
+        assertEquals(List.of("Ada", "Ghost", "Grace"),
+                drift.sample().stream().map(AuthorStats.Mismatch::authorName).sorted().toList());
+
+        assertEquals(2, authorStats.rebuild());
+        assertTrue(authorStats.verify().consistent());
+    }
+
+    // One post in its own open transaction, like one POST /posts that has not committed yet
+    private static Connection insertUncommitted(DataSource dataSource, String title, String author) throws Exception {
+        Connection con = dataSource.getConnection();
+        con.setAutoCommit(false);
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO blog_posts (title, author_name, content) VALUES (?, ?, 'x')")) {
+            ps.setString(1, title);
+            ps.setString(2, author);
+            ps.executeUpdate();
+        }
+        return con;
+    }
+
+    @Test
+    void twoFirstPostsOfANewAuthorAtTheSameTimeBothCount() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (Connection first = insertUncommitted(dataSource, "First", "Newcomer")) {
+            // The second writer also finds no author_stats row yet, and waits for the first one's insert
+            Future<?> second = pool.submit(() -> {
+                try (Connection con = insertUncommitted(dataSource, "Second", "Newcomer")) {
+                    con.commit();
+                }
+                return null;
+            });
+            Thread.sleep(200);
+            first.commit();
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+
+        AuthorStats.Stats newcomer = authorStats.stats("Newcomer").orElseThrow();
+        assertEquals(2, newcomer.postCount());
+        assertEquals("Second", newcomer.latestTitle());
+        assertTrue(authorStats.verify().consistent());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.db_test;
+
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:search-stream",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "blog.seed.rows=0", // No 1M-row seed for this test
+        "blog.fulltext.enabled=false",
+        "spring.datasource.hikari.maximum-pool-size=1" // Every call gets the same connection back
+})
+class BlogSearchStreamerTests {
+
+    @Autowired
+    private BlogRepository repository;
+
+    @Autowired
+    private BlogSearchStreamer streamer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        repository.deleteAll();
+        List<BlogPost> posts = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            posts.add(new BlogPost("Post " + i, i % 2 == 0 ? "Ada" : "Linus", "Content " + i));
+        }
+        repository.saveAll(posts);
+    }
+
+    private JsonNode page(String author, long after, int limit, boolean withContent) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        streamer.writePage(author, after, limit, withContent, out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    @Test
+    void walksEveryPostOnceByFollowingTheCursor() {
+        List<Long> ids = new ArrayList<>();
+        long cursor = 0;
+        int pages = 0;
+        while (true) {
+            JsonNode page = page("Ada", cursor, 40, false);
+            pages++;
+            for (JsonNode post : page.get("posts")) {
+                assertEquals("Ada", post.get("authorName").asString());
+                assertFalse(post.has("content")); // The projection never touches the LOB
+                ids.add(post.get("id").asLong());
+            }
+            if (page.get("nextCursor").isNull()) break;
+            cursor = page.get("nextCursor").asLong();
+        }
+
+        assertEquals(125, ids.size());
+        assertEquals(4, pages); // 40 + 40 + 40 + 5
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i) > ids.get(i - 1)); // Strictly ascending: no duplicates, no gaps in the walk
+        }
+    }
+
+    @Test
+    void anExactlyFullLastPageHasNoNextCursor() {
+        assertTrue(page("Linus", 0, 125, false).get("nextCursor").isNull());
+        assertEquals(124, page("Linus", 0, 124, false).get("posts").size());
+        assertFalse(page("Linus", 0, 124, false).get("nextCursor").isNull());
+    }
+
+    @Test
+    void contentOnlyWhenAskedFor() {
+        JsonNode post = page("Ada", 0, 1, true).get("posts").get(0);
+        long id = post.get("id").asLong();
+        assertEquals(repository.findById(id).orElseThrow().getContent(), post.get("content").asString());
+
+        StringWriter content = new StringWriter();
+        streamer.writeContent(id, content);
+        assertEquals(post.get("content").asString(), content.toString());
+    }
+
+    @Test
+    void rejectsUnboundedPages() {
+        assertThrows(IllegalArgumentException.class, () -> streamer.validate(0));
+        assertThrows(IllegalArgumentException.class, () -> streamer.validate(1_000_000));
+    }
+
+    @Test
+    void thePooledConnectionIsNotLeftInLazyMode() {
+        page("Ada", 0, 10, false);
+
+        // The next borrower of the (only) connection sees H2's default again
+        assertEquals(false, jdbcTemplate.execute((ConnectionCallback<Boolean>) con ->
+                ((SessionLocal) con.unwrap(JdbcConnection.class).getSession()).isLazyQueryExecution()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.db_test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk-loader",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "blog.seed.rows=0", // The test loads the rows itself
+        "blog.fulltext.enabled=false",
+        "blog.seed.generator-threads=3",
+        "blog.seed.queue-capacity=2" // Tiny queue: the generators have to wait for the writer
+})
+class BulkLoaderTests {
+
+    private static final long ROWS = 12_345; // Not a multiple of the batch size
+
+    @Autowired
+    private BulkLoader bulkLoader;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void empty() {
+        jdbcTemplate.execute("DELETE FROM blog_posts");
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"batch", "pipelined", "range"})
+    void everyModeLoadsTheSameRowsAndRebuildsTheIndex(String mode) {
+        BulkLoader.Report report = bulkLoader.load(mode, ROWS);
+
+        assertEquals(ROWS, report.rows());
+        assertEquals(ROWS, count("SELECT COUNT(*) FROM blog_posts"));
+        assertEquals(ROWS, count("SELECT COUNT(DISTINCT title) FROM blog_posts")); // Each row number exactly once
+        assertEquals(BulkLoader.AUTHORS, count("SELECT COUNT(DISTINCT author_name) FROM blog_posts"));
+        assertEquals(1, count("SELECT COUNT(*) FROM blog_posts WHERE title = 'Java Tutorial #12345' "
+                + "AND author_name = 'Author2345' AND content = 'Content for post 12345'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = 'IDX_AUTHOR'"));
+    }
+
+    private void assertIndexesAndTriggerAreBack() {
+        assertEquals(1, count("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = 'IDX_AUTHOR'"));
+        assertEquals(1, count("SELECT COUNT(DISTINCT TRIGGER_NAME) FROM INFORMATION_SCHEMA.TRIGGERS WHERE TRIGGER_NAME = 'TRG_AUTHOR_STATS'"));
+    }
+
+    @Test
+    void anUnknownModeTouchesNothing() {
+        assertThrows(IllegalArgumentException.class, () -> bulkLoader.load("parallel", ROWS));
+        assertIndexesAndTriggerAreBack();
+    }
+
+    @Test
+    void aFailedLoadRestoresIndexesAndTriggerAndKeepsNoHalfBatch() {
+        // Row 5000 cannot be written: the pipelined writer fails in the middle of a batch
+        jdbcTemplate.execute("ALTER TABLE blog_posts ADD CONSTRAINT no_row_5000 CHECK (title <> 'Java Tutorial #5000')");
+        try {
+            assertThrows(DataAccessException.class, () -> bulkLoader.load("pipelined", 12_000)); // Whole batches only
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE blog_posts DROP CONSTRAINT no_row_5000");
+        }
+
+        assertIndexesAndTriggerAreBack();
+        assertEquals(0, count("SELECT COUNT(*) FROM blog_posts") % 1000); // Only whole, committed batches
+        assertEquals(0, count("SELECT COUNT(*) FROM blog_posts WHERE title = 'Java Tutorial #5000'"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.db_test;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fulltext",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "blog.seed.rows=0"
+})
+class FullTextIndexTests {
+
+    @Autowired
+    private BlogRepository repository;
+
+    @Autowired
+    private FullTextIndex fullTextIndex;
+
+    @Autowired
+    private BlogController controller;
+
+    @Test
+    void newPostsAreSearchableImmediatelyAndRankedByRelevance() {
+        assertTrue(fullTextIndex.exists()); // Created on startup, before any post existed
+
+        // Saved through JPA after the index exists: only the trigger can have indexed them
+        BlogPost once = repository.save(new BlogPost("Garbage collection", "Ada", "A short note on the heap."));
+        BlogPost often = repository.save(new BlogPost("Garbage collection tuning",
+                "Linus", "Garbage collection pauses: tuning the garbage collection of the heap."));
+        repository.save(new BlogPost("Virtual threads", "Ada", "Nothing about that other topic."));
+
+        List<FullTextIndex.Hit> hits = fullTextIndex.search("garbage", 10, 0);
+        assertEquals(2, hits.size());
+        assertEquals(often.getId(), hits.get(0).id()); // More mentions, higher score
+        assertEquals(once.getId(), hits.get(1).id());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+
+        // Words from the @Lob content are indexed too
+        assertEquals(List.of(often.getId()), fullTextIndex.search("pauses", 10, 0).stream().map(FullTextIndex.Hit::id).toList());
+    }
+
+    @Test
+    void pagesThroughHitsWithAnOffset() {
+        for (int i = 0; i < 5; i++) {
+            repository.save(new BlogPost("Kotlin coroutines " + i, "Grace", "coroutines everywhere"));
+        }
+
+        BlogController.TextSearchPage first = controller.searchText("coroutines", 3, 0, "lucene");
+        assertEquals(3, first.hits().size());
+        assertEquals(3, first.nextOffset());
+
+        BlogController.TextSearchPage second = controller.searchText("coroutines", 3, first.nextOffset(), "lucene");
+        assertEquals(2, second.hits().size());
+        assertNull(second.nextOffset());
+
+        // Same posts as the full-scan baseline, just ranked
+        assertEquals(5, controller.searchText("coroutines", 10, 0, "like").hits().size());
+    }
+
+    @Test
+    void aBrokenQueryIsABadRequest() {
+        assertThrows(IllegalArgumentException.class, () -> fullTextIndex.search("\"unclosed", 10, 0));
+    }
+
+    @Test
+    void aDatabaseFailureIsNotTheClientsFault() {
+        // A database that cannot be reached: the error must not turn into a 400
+        FullTextIndex unreachable = new FullTextIndex(
+                new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:does-not-exist;IFEXISTS=TRUE")), true);
+
+        assertThrows(DataAccessException.class, () -> unreachable.search("garbage", 10, 0));
+    }
+
+    @Test
+    void likeWildcardsTypedByTheUserAreMatchedLiterally() {
+        BlogPost percent = repository.save(new BlogPost("Discount 100% off", "Grace", "sale"));
+        BlogPost plain = repository.save(new BlogPost("Discount 1000 off", "Grace", "sale"));
+        BlogPost underscore = repository.save(new BlogPost("snake_case names", "Grace", "style"));
+        repository.save(new BlogPost("snakeXcase names", "Grace", "style"));
+
+        List<Long> hundredPercent = fullTextIndex.searchLike("100%", 10, 0).stream().map(FullTextIndex.Hit::id).toList();
+        assertTrue(hundredPercent.contains(percent.getId()));
+        assertFalse(hundredPercent.contains(plain.getId()));
+
+        List<Long> snakeCase = fullTextIndex.searchLike("snake_case", 10, 0).stream().map(FullTextIndex.Hit::id).toList();
+        assertEquals(List.of(underscore.getId()), snakeCase);
+    }
+}
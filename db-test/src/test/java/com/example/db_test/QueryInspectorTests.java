@@ -0,0 +1,121 @@
+package com.example.db_test;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-inspector",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "blog.seed.rows=0",
+        "blog.fulltext.enabled=false"
+})
+class QueryInspectorTests {
+
+    @Autowired
+    private BlogRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private QueryInspector inspector;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void seed() {
+        repository.deleteAll();
+        List<BlogPost> posts = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            posts.add(new BlogPost("Post " + i, i % 3 == 0 ? "Ada" : "Linus", "Content " + i));
+        }
+        repository.saveAll(posts);
+    }
+
+    private QueryInspector.StatementSummary summaryOf(String sql) {
+        return inspector.summary().stream().filter(s -> s.sql().equals(sql)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void measuresEveryStatementAndTheRowsItRead() {
+        String sql = "SELECT id FROM blog_posts WHERE author_name = ?";
+        for (int i = 0; i < 5; i++) {
+            assertEquals(10, jdbcTemplate.queryForList(sql, Long.class, "Ada").size());
+        }
+
+        QueryInspector.StatementSummary summary = summaryOf(sql);
+        assertEquals(5, summary.count());
+        assertEquals(10.0, summary.meanRows());
+        assertTrue(summary.p99Ms() >= summary.meanMs());
+
+        // Hibernate's statements go through the same DataSource
+        assertTrue(inspector.summary().stream().anyMatch(s -> s.sql().startsWith("insert into blog_posts")));
+        assertTrue(registry.get("blog.jdbc.connection.acquire").timer().count() > 0);
+    }
+
+    @Test
+    void recordsBatchSizes() {
+        long before = registry.get("blog.jdbc.batch.size").summary().count();
+        jdbcTemplate.batchUpdate("INSERT INTO blog_posts (title, author_name, content) VALUES (?, ?, ?)",
+                List.of(BulkLoader.row(1), BulkLoader.row(2), BulkLoader.row(3), BulkLoader.row(4)));
+
+        assertEquals(before + 1, registry.get("blog.jdbc.batch.size").summary().count());
+        assertEquals(4.0, registry.get("blog.jdbc.batch.size").summary().max());
+    }
+
+    @Test
+    void flagsTheSameSelectRepeatedInOneRequest() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM blog_posts ORDER BY id", Long.class);
+
+        inspector.beginRequest("GET /test");
+        jdbcTemplate.queryForList("SELECT id FROM blog_posts WHERE author_name = ?", Long.class, "Ada"); // Once: fine
+        for (Long id : ids.subList(0, 12)) {
+            repository.findById(id).orElseThrow(); // One SELECT per post: the classic N+1
+        }
+        QueryInspector.RequestReport report = inspector.endRequest();
+
+        assertEquals(13, report.statements());
+        assertEquals(1, report.nPlusOne().size());
+        assertEquals(12, report.nPlusOne().get(0).count());
+        assertTrue(report.nPlusOne().get(0).sql().contains("where bp1_0.id=?"));
+    }
+
+    @Test
+    void slowStatementsAreCountedAndExplainedWithTheirParameters() {
+        // A separate inspector where everything counts as slow
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        QueryInspector strict = new QueryInspector(meters, Duration.ZERO, false, 10, 10);
+        strict.planSource(dataSource);
+        String sql = "SELECT * FROM blog_posts WHERE author_name = ?";
+
+        strict.executed(strict.statement(sql), 1_000, new Object[]{"Ada"});
+
+        assertEquals(1.0, meters.get("blog.jdbc.slow").counter().count());
+        assertTrue(strict.plan(sql, new Object[]{"Ada"}).contains("IDX_AUTHOR"));
+        strict.destroy();
+    }
+
+    @Test
+    void wrapsThePoolWithoutHidingIt() throws Exception {
+        assertTrue(dataSource.isWrapperFor(HikariDataSource.class));
+        assertTrue(dataSource.unwrap(HikariDataSource.class).isRunning());
+    }
+}
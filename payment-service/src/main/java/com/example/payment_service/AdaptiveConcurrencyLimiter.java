@@ -0,0 +1,142 @@
+package com.example.payment_service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// How many gateway calls may be in flight at once, learned from the gateway's latency ("gradient" limiter).
+// A fixed bulkhead of 20 threads is right for a healthy gateway and wrong for a slow one: 20 calls then just wait
+// longer, and every caller behind them times out. Here the limit follows the latency:
+//   1. baseline: the lowest latency seen, i.e. the gateway's speed when nothing waits in its queue
+//   2. every finished call: gradient = baseline / latency (capped at 1). Latency doubles -> the limit halves
+//   3. newLimit = limit * gradient + headroom (sqrt of the limit), so a healthy gateway still gets probed upwards
+//   4. a call past the limit is refused at once (no thread, no wait): ConcurrencyLimitExceededException
+//   5. only calls made while the limit was actually used may raise it: a quiet hour proves nothing
+// A moving average would not do as baseline: under constant overload it becomes the queued latency, and the limit
+// grows back to the maximum. The lowest latency only drifts up towards the current one over baseline-window, so a
+// gateway that got slower for good becomes the new normal after a while.
+
+@Component
+public class AdaptiveConcurrencyLimiter implements MeterBinder {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final long baselineWindowNanos;
+    private final LongSupplier clock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double baselineNanos; // Guarded by this
+    private long lastSampleNanos; // Guarded by this
+    final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(@Value("${payment.limiter.initial-limit:20}") int initialLimit,
+                                      @Value("${payment.limiter.min-limit:2}") int minLimit,
+                                      @Value("${payment.limiter.max-limit:50}") int maxLimit,
+                                      @Value("${payment.limiter.smoothing:0.2}") double smoothing,
+                                      @Value("${payment.limiter.baseline-window:10s}") Duration baselineWindow) {
+        this(initialLimit, minLimit, maxLimit, smoothing, baselineWindow, System::nanoTime);
+    }
+
+    // Tests move the clock themselves
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double smoothing, Duration baselineWindow,
+                               LongSupplier clock) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Need 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.baselineWindowNanos = baselineWindow.toNanos();
+        this.clock = clock;
+        this.limit = initialLimit;
+    }
+
+    // Takes a slot or throws. Returns the start time, to hand back to onSuccess / onFailure.
+    public long acquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                throw new ConcurrencyLimitExceededException(current);
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return clock.getAsLong();
+            }
+        }
+    }
+
+    // The call returned: its latency is a sample
+    public void onSuccess(long startNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        sample(clock.getAsLong() - startNanos, inFlightBefore);
+    }
+
+    // The call failed: a failure that took long (a timeout) still tells how slow the gateway is, a quick one does not
+    public void onFailure(long startNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        long latency = clock.getAsLong() - startNanos;
+        synchronized (this) {
+            if (baselineNanos == 0 || latency <= baselineNanos) {
+                return;
+            }
+        }
+        sample(latency, inFlightBefore);
+    }
+
+    private synchronized void sample(long latencyNanos, int inFlightBefore) {
+        latencyNanos = Math.max(1, latencyNanos);
+        long now = clock.getAsLong();
+        long sinceLastSample = now - lastSampleNanos;
+        lastSampleNanos = now;
+        if (baselineNanos == 0) {
+            baselineNanos = latencyNanos;
+            return;
+        }
+        if (latencyNanos < baselineNanos) {
+            baselineNanos = latencyNanos;
+        } else {
+            baselineNanos += (latencyNanos - baselineNanos) * Math.min(1.0, (double) sinceLastSample / baselineWindowNanos);
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, baselineNanos / latencyNanos));
+        double headroom = Math.sqrt(limit);
+        double target = limit * gradient + headroom;
+        if (target > limit && inFlightBefore < limit / 2) {
+            return; // Hardly used: no evidence that more would be fine
+        }
+        double next = limit * (1 - smoothing) + target * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    // payment.gateway.limit, payment.gateway.inflight and payment.gateway.rejected on /actuator/metrics
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("payment.gateway.limit", this, AdaptiveConcurrencyLimiter::limit).register(registry);
+        Gauge.builder("payment.gateway.inflight", this, AdaptiveConcurrencyLimiter::inFlight).register(registry);
+        FunctionCounter.builder("payment.gateway.rejected", rejected, LongAdder::sum).register(registry);
+    }
+}
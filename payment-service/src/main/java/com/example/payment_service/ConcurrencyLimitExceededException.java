@@ -0,0 +1,10 @@
+package com.example.payment_service;
+
+// Thrown by AdaptiveConcurrencyLimiter instead of queueing a gateway call: the caller gets an answer at once.
+// The circuit breaker ignores it (application.properties): a full limiter says nothing about the gateway's health.
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    public ConcurrencyLimitExceededException(int inFlight) {
+        super("Too many payments in flight (" + inFlight + ")");
+    }
+}
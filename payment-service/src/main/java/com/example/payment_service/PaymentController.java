@@ -1,19 +1,38 @@
 package com.example.payment_service;
 
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentGateway paymentGateway;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, PaymentGateway paymentGateway) {
         this.paymentService = paymentService;
+        this.paymentGateway = paymentGateway;
     }
 
     @GetMapping("/pay")
     public String makePayment() {
         return paymentService.processPayment();
     }
-}
\ No newline at end of file
+
+    // Spring MVC releases the Tomcat thread and writes the response when the future completes
+    @GetMapping("/pay/async")
+    public CompletableFuture<String> makePaymentAsync() {
+        return paymentService.processPaymentAsync();
+    }
+
+    // Simulated slow-gateway mode: POST /gateway/slow?enabled=true
+    @PostMapping("/gateway/slow")
+    public String slowGateway(@RequestParam boolean enabled) {
+        paymentGateway.setSlow(enabled);
+        return enabled ? "Gateway is slow" : "Gateway is healthy";
+    }
+}
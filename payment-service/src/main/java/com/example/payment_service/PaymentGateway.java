@@ -0,0 +1,70 @@
+package com.example.payment_service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+// The simulated 3rd-party gateway (Stripe, PayPal, a bank). Like a real one it can only work on so many payments
+// at once (payment.gateway.capacity): calls past that wait in its queue, so sending more at once makes every call
+// slower. That is what an adaptive limit has to detect.
+//   - failure-rate: share of calls that fail at once (the original "50% down" simulation)
+//   - latency: how long one payment takes when the gateway is healthy
+//   - slow mode (payment.gateway.slow or POST /gateway/slow?enabled=true): every payment takes slow-latency
+//     instead. The gateway does not fail, it just answers late: the case that used to hold every Tomcat thread.
+
+@Component
+public class PaymentGateway {
+
+    private final Semaphore capacity;
+    private final double failureRate;
+    private final Duration latency;
+    private final Duration slowLatency;
+    private volatile boolean slow;
+
+    @Autowired
+    public PaymentGateway(@Value("${payment.gateway.capacity:10}") int capacity,
+                          @Value("${payment.gateway.failure-rate:0.5}") double failureRate,
+                          @Value("${payment.gateway.latency:50ms}") Duration latency,
+                          @Value("${payment.gateway.slow-latency:3s}") Duration slowLatency,
+                          @Value("${payment.gateway.slow:false}") boolean slow) {
+        this.capacity = new Semaphore(capacity, true);
+        this.failureRate = failureRate;
+        this.latency = latency;
+        this.slowLatency = slowLatency;
+        this.slow = slow;
+    }
+
+    // Blocks the calling thread for as long as the gateway takes, like a blocking HTTP client would
+    public String charge() {
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            System.out.println("❌ Payment Gateway Failed!");
+            throw new RuntimeException("Payment Gateway Down");
+        }
+        try {
+            capacity.acquire();
+            try {
+                Thread.sleep((slow ? slowLatency : latency).toMillis());
+            } finally {
+                capacity.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Payment interrupted", e);
+        }
+        System.out.println("✅ Payment Successful");
+        return "Payment Processed Successfully";
+    }
+
+    public void setSlow(boolean slow) {
+        this.slow = slow;
+        System.out.println(slow ? "🐢 Gateway is now SLOW (" + slowLatency.toMillis() + "ms per payment)" : "🐇 Gateway is healthy again");
+    }
+
+    public boolean isSlow() {
+        return slow;
+    }
+}
@@ -1,27 +1,34 @@
 package com.example.payment_service;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
 import org.springframework.stereotype.Service;
 
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
-// Simulate a Payment Gateway that fails randomly
+// Calls the Payment Gateway (PaymentGateway: fails randomly, and can be slow)
 
 @Service
 public class PaymentService {
 
+    private final PaymentGateway gateway;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public PaymentService(PaymentGateway gateway, AdaptiveConcurrencyLimiter limiter) {
+        this.gateway = gateway;
+        this.limiter = limiter;
+    }
+
     // 1. Name of the circuit breaker config
     // 2. Fallback method to call if the circuit is OPEN or the method fails
+    // The calling (Tomcat) thread waits for the gateway: a slow gateway holds one thread per payment
     @CircuitBreaker(name = "paymentService", fallbackMethod = "fallbackPayment")
     public String processPayment() {
-        // Simulate random failure (50% chance)
-        if (new Random().nextBoolean()) {
-            System.out.println("❌ Payment Gateway Failed!");
-            throw new RuntimeException("Payment Gateway Down");
-        }
-
-        System.out.println("✅ Payment Successful");
-        return "Payment Processed Successfully";
+        return gateway.charge();
     }
 
     // This method runs when the circuit is OPEN or exception is thrown
@@ -29,4 +36,43 @@ public class PaymentService {
         System.out.println("⚠️ Circuit Open! Returning fallback response.");
         return "Payment Failed (Circuit Open). Please try again later.";
     }
-}
\ No newline at end of file
+
+    // The non-blocking path. Resilience4j applies the annotations outside-in as CircuitBreaker(TimeLimiter(Bulkhead)):
+    //   1. BULKHEAD (thread pool): the gateway call runs on one of a few "paymentService" threads, never on Tomcat's.
+    //      The request thread is free as soon as this returns the future.
+    //   2. TIME LIMITER: the caller gets an answer after timeout-duration at the latest, however slow the gateway is
+    //   3. CIRCUIT BREAKER: timeouts count as failures (and calls over slow-call-duration-threshold as slow), so a
+    //      slow gateway trips the breaker just like a failing one
+    //   4. ADAPTIVE LIMIT: inside the bulkhead, AdaptiveConcurrencyLimiter lets only as many calls reach the gateway
+    //      as its latency says it can take; the rest are refused at once instead of queueing
+    @CircuitBreaker(name = "paymentService", fallbackMethod = "fallbackPaymentAsync")
+    @TimeLimiter(name = "paymentService")
+    @Bulkhead(name = "paymentService", type = Bulkhead.Type.THREADPOOL)
+    public CompletableFuture<String> processPaymentAsync() {
+        long start = limiter.acquire();
+        try {
+            String result = gateway.charge();
+            limiter.onSuccess(start); // Also after a timeout: the gateway did answer, this late
+            return CompletableFuture.completedFuture(result);
+        } catch (RuntimeException e) {
+            limiter.onFailure(start);
+            throw e;
+        }
+    }
+
+    public CompletableFuture<String> fallbackPaymentAsync(Throwable t) {
+        String answer;
+        if (t instanceof TimeoutException) {
+            // The charge may still go through on the bulkhead thread, and nothing here will find out: say so
+            answer = "Payment Status Unknown (gateway too slow). Check your account before paying again.";
+        } else if (t instanceof ConcurrencyLimitExceededException || t instanceof BulkheadFullException) {
+            answer = "Payment Service Busy. Please try again in a moment.";
+        } else if (t instanceof CallNotPermittedException) {
+            answer = "Payment Failed (Circuit Open). Please try again later.";
+        } else {
+            answer = "Payment Failed. Please try again later.";
+        }
+        System.out.println("⚠️ " + t.getClass().getSimpleName() + ": " + answer);
+        return CompletableFuture.completedFuture(answer);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.payment_service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private AdaptiveConcurrencyLimiter limiter(int initial, int min, int max) {
+        return new AdaptiveConcurrencyLimiter(initial, min, max, 0.2, Duration.ofSeconds(10), now::get);
+    }
+
+    // As many calls as the limit allows start together and all take latencyMs
+    private void fullRound(AdaptiveConcurrencyLimiter limiter, long latencyMs) {
+        int calls = limiter.limit();
+        long[] starts = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            starts[i] = limiter.acquire();
+        }
+        now.addAndGet(latencyMs * 1_000_000);
+        for (long start : starts) {
+            limiter.onSuccess(start);
+        }
+    }
+
+    @Test
+    void refusesCallsPastTheLimitAtOnce() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10);
+        long first = limiter.acquire();
+        limiter.acquire();
+
+        assertThrows(ConcurrencyLimitExceededException.class, limiter::acquire);
+        assertEquals(1, limiter.rejectedCount());
+
+        limiter.onSuccess(first);
+        limiter.acquire(); // A slot is free again
+        assertEquals(2, limiter.inFlight());
+    }
+
+    @Test
+    void theLimitShrinksWhenLatencyRisesAndGrowsBackWhenItFalls() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 50);
+        for (int i = 0; i < 20; i++) {
+            fullRound(limiter, 50);
+        }
+        int healthy = limiter.limit();
+        assertTrue(healthy > 10, "a healthy gateway is probed upwards, limit " + healthy);
+
+        for (int i = 0; i < 5; i++) {
+            fullRound(limiter, 500); // The gateway is 10x slower
+        }
+        int slow = limiter.limit();
+        assertTrue(slow < healthy / 2, "limit " + healthy + " -> " + slow);
+
+        for (int i = 0; i < 30; i++) {
+            fullRound(limiter, 50);
+        }
+        assertTrue(limiter.limit() > slow * 2, "recovered to " + limiter.limit());
+    }
+
+    @Test
+    void aGatewayThatGotSlowerForGoodBecomesTheNewNormal() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 50);
+        for (int i = 0; i < 20; i++) {
+            fullRound(limiter, 50);
+        }
+        for (int i = 0; i < 5; i++) {
+            fullRound(limiter, 200);
+        }
+        int shrunk = limiter.limit();
+
+        for (int i = 0; i < 150; i++) { // 30 seconds at 200ms: longer than baseline-window
+            fullRound(limiter, 200);
+        }
+        assertTrue(limiter.limit() > shrunk * 2, "limit " + shrunk + " -> " + limiter.limit());
+    }
+
+    @Test
+    void aQuietGatewayDoesNotRaiseTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 50);
+        for (int i = 0; i < 100; i++) {
+            long start = limiter.acquire(); // One call at a time: 10 allowed, 1 used
+            now.addAndGet(50_000_000);
+            limiter.onSuccess(start);
+        }
+        assertEquals(10, limiter.limit());
+    }
+
+    @Test
+    void aQuickFailureIsNotALatencySample() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 50);
+        fullRound(limiter, 100);
+        int before = limiter.limit();
+        for (int i = 0; i < 50; i++) {
+            limiter.onFailure(limiter.acquire()); // Failed in 0ms: tells nothing about the gateway's speed
+        }
+        assertEquals(before, limiter.limit());
+    }
+}
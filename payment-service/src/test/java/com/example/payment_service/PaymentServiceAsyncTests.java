@@ -0,0 +1,114 @@
+package com.example.payment_service;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "payment.gateway.failure-rate=0",
+        "payment.gateway.latency=20ms",
+        "payment.gateway.slow-latency=1500ms",
+        "resilience4j.timelimiter.instances.paymentService.timeout-duration=300ms"
+})
+class PaymentServiceAsyncTests {
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    PaymentGateway paymentGateway;
+
+    @Autowired
+    CircuitBreakerRegistry circuitBreakers;
+
+    @Autowired
+    AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void healthyGateway() {
+        paymentGateway.setSlow(false);
+        circuitBreakers.circuitBreaker("paymentService").reset();
+    }
+
+    @AfterEach
+    void reset() {
+        paymentGateway.setSlow(false);
+    }
+
+    @Test
+    void aHealthyGatewayProcessesThePayment() throws Exception {
+        assertEquals("Payment Processed Successfully", paymentService.processPaymentAsync().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void aSlowGatewayTimesOutFastAndTripsTheBreaker() throws Exception {
+        paymentGateway.setSlow(true);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> payments = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            payments.add(paymentService.processPaymentAsync());
+        }
+        for (CompletableFuture<String> payment : payments) {
+            assertEquals("Payment Status Unknown (gateway too slow). Check your account before paying again.",
+                    payment.get(5, TimeUnit.SECONDS));
+        }
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(tookMs < 1000, "answered after " + tookMs + "ms, the gateway takes 1500ms"); // Timeout: 300ms
+
+        // 5 timeouts out of 5: the breaker is open, the next payment does not even reach the gateway
+        assertEquals("Payment Failed (Circuit Open). Please try again later.",
+                paymentService.processPaymentAsync().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DirtiesContext // Leaves the shared limiter at its floor
+    void aRefusalByTheLimiterIsBusyAndIgnoredByTheBreaker() throws Exception {
+        // Gateway calls a previous test left behind (a timed-out call keeps running) finish first
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.inFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // One fast call sets the baseline, then calls that "took" 10s each drive the limit down
+        limiter.onSuccess(limiter.acquire());
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess(limiter.acquire() - TimeUnit.SECONDS.toNanos(10));
+        }
+        assertTrue(limiter.limit() < 10, "limit is still " + limiter.limit());
+
+        // Take every slot that is left, so the next call is refused on the bulkhead thread
+        List<Long> held = new ArrayList<>();
+        while (limiter.inFlight() < limiter.limit()) {
+            held.add(limiter.acquire());
+        }
+        CircuitBreaker breaker = circuitBreakers.circuitBreaker("paymentService");
+        try {
+            long rejectedBefore = limiter.rejectedCount();
+            for (int i = 0; i < 10; i++) {
+                assertEquals("Payment Service Busy. Please try again in a moment.",
+                        paymentService.processPaymentAsync().get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(rejectedBefore + 10, limiter.rejectedCount()); // Refused by the limiter, not the bulkhead
+
+            // 10 refusals, more than the window of 5: counted as failures they would have opened the circuit
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertEquals(0, breaker.getMetrics().getNumberOfBufferedCalls());
+        } finally {
+            held.forEach(limiter::onFailure);
+        }
+    }
+}
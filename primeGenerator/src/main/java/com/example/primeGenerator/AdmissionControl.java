@@ -0,0 +1,135 @@
+package com.example.primeGenerator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The "bouncer" in front of the async pool. Instead of letting work pile up in the executor queue
+// until it throws TaskRejectedException, we estimate how much CPU each /primes call will cost and
+// turn requests away early (503 + Retry-After) once the backlog is too deep.
+// It is also the pool's TaskDecorator, which is how it sees queue depth and wait time in every executor mode.
+
+@Component
+public class AdmissionControl implements TaskDecorator {
+
+    // Measured single-threaded costs (see readme): trial division ~ n^2 / 85 us, sieve ~ 0.2 us per new n
+    private static final long TRIAL_DIVISOR = 85;
+    private static final double SIEVE_MICROS_PER_N = 0.2;
+
+    private final PrimeSieve primeSieve;
+    private final PrimeResultCache resultCache;
+    private final boolean enabled;
+    private final int maxQueueDepth;
+    private final long maxPendingWorkMicros;
+    private final int cores = Runtime.getRuntime().availableProcessors();
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong pendingWorkMicros = new AtomicLong();
+
+    private final Timer waitTimer;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTooMuchWork;
+    private final Counter rejectedByExecutor;
+
+    public AdmissionControl(PrimeSieve primeSieve,
+                            PrimeResultCache resultCache,
+                            MeterRegistry registry,
+                            @Value("${primes.admission.enabled:true}") boolean enabled,
+                            @Value("${primes.admission.max-queue-depth:100}") int maxQueueDepth,
+                            @Value("${primes.admission.max-pending-work-ms:60000}") long maxPendingWorkMs) {
+        this.primeSieve = primeSieve;
+        this.resultCache = resultCache;
+        this.enabled = enabled;
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxPendingWorkMicros = maxPendingWorkMs * 1000;
+
+        Gauge.builder("primes.executor.queue.depth", queued, AtomicInteger::get)
+                .description("Tasks handed to the async executor that have not started yet")
+                .register(registry);
+        Gauge.builder("primes.admission.pending.work", pendingWorkMicros, w -> w.get() / 1000.0)
+                .description("Estimated CPU milliseconds of admitted but unfinished /primes work")
+                .register(registry);
+        this.waitTimer = Timer.builder("primes.executor.wait")
+                .description("Time a task spent waiting for an executor thread")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.rejectedQueueFull = Counter.builder("primes.rejected").tag("reason", "queue-depth").register(registry);
+        this.rejectedTooMuchWork = Counter.builder("primes.rejected").tag("reason", "pending-work").register(registry);
+        this.rejectedByExecutor = Counter.builder("primes.rejected").tag("reason", "executor").register(registry);
+    }
+
+    // Rough CPU cost of one request, in microseconds
+    public long estimateCostMicros(int n, String engine) {
+        PrimeResultCache.Key key = PrimeResultCache.Key.of(engine, n);
+        if (resultCache.contains(key)) {
+            return 1; // Answered from the result cache, or joins a computation that is already paid for
+        }
+        if (key.isTrial()) {
+            return Math.max(1, (long) n * n / TRIAL_DIVISOR);
+        }
+        // Anything already in the shared prime table is a lookup
+        long uncached = (long) n - primeSieve.cachedCount();
+        return Math.max(1, (long) (uncached * SIEVE_MICROS_PER_N));
+    }
+
+    // Returns false when the request should be shed. Every successful call must be paired with release().
+    public boolean tryAdmit(long costMicros) {
+        if (!enabled) {
+            pendingWorkMicros.addAndGet(costMicros);
+            return true;
+        }
+        if (queued.get() >= maxQueueDepth) {
+            rejectedQueueFull.increment();
+            return false;
+        }
+        while (true) {
+            long pending = pendingWorkMicros.get();
+            // An idle server always takes the request, otherwise one huge n could never run
+            if (pending > 0 && pending + costMicros > maxPendingWorkMicros) {
+                rejectedTooMuchWork.increment();
+                return false;
+            }
+            if (pendingWorkMicros.compareAndSet(pending, pending + costMicros)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long costMicros) {
+        pendingWorkMicros.addAndGet(-costMicros);
+    }
+
+    // The executor decorated the task before refusing it, so it never left the "queue" through decorate()
+    public void recordExecutorRejection() {
+        queued.decrementAndGet();
+        rejectedByExecutor.increment();
+    }
+
+    // How long until the current backlog should have drained, if every core works on it
+    public long retryAfterSeconds() {
+        long drainMicros = pendingWorkMicros.get() / cores;
+        return Math.max(1, TimeUnit.MICROSECONDS.toSeconds(drainMicros) + 1);
+    }
+
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    @Override
+    public Runnable decorate(Runnable task) {
+        queued.incrementAndGet();
+        long submittedAt = System.nanoTime();
+        return () -> {
+            queued.decrementAndGet();
+            waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            task.run();
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.primeGenerator;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+
+// Runs before the controller (and before any work is handed to the pool).
+// If AdmissionControl says no, the request is answered with 503 straight away and never touches the executor.
+
+@Component
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionFilter(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"/primes".equals(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int n;
+        try {
+            String param = request.getParameter("n");
+            n = param == null ? 20000 : Integer.parseInt(param);
+        } catch (NumberFormatException e) {
+            chain.doFilter(request, response); // Let the controller produce the 400
+            return;
+        }
+
+        long cost = admissionControl.estimateCostMicros(n, request.getParameter("engine"));
+        if (!admissionControl.tryAdmit(cost)) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControl.retryAfterSeconds()));
+            response.getWriter().write("Server busy, please retry later.");
+            return;
+        }
+
+        boolean releaseNow = true;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // The CompletableFuture is still running, give the budget back when the response completes
+                request.getAsyncContext().addListener(new ReleaseOnComplete(cost));
+                releaseNow = false;
+            }
+        } finally {
+            if (releaseNow) {
+                admissionControl.release(cost);
+            }
+        }
+    }
+
+    private final class ReleaseOnComplete implements AsyncListener {
+        private final long cost;
+        private boolean released;
+
+        ReleaseOnComplete(long cost) {
+            this.cost = cost;
+        }
+
+        private synchronized void release() {
+            if (!released) {
+                released = true;
+                admissionControl.release(cost);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not re-registered on a second startAsync, nothing to do
+        }
+    }
+}
@@ -1,22 +1,65 @@
 package com.example.primeGenerator;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 @Configuration
 public class AsyncConfig {
 
+    // primes.executor.mode picks how the back-office is staffed:
+    //   platform -> the original fixed team of 20 threads with a 500-slot queue
+    //   virtual  -> a new virtual thread per task (no queue at all, AdmissionControl is the only limit)
+    //   cpu      -> one platform thread per core, since the work is pure CPU
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(AdmissionControl admissionControl,
+                                 @Value("${primes.executor.mode:platform}") String mode,
+                                 @Value("${primes.executor.queue-capacity:500}") int queueCapacity) {
+        switch (mode.toLowerCase()) {
+            case "virtual":
+                return virtualThreadExecutor(admissionControl);
+            case "cpu":
+                int cores = Runtime.getRuntime().availableProcessors();
+                return pooledExecutor(admissionControl, cores, queueCapacity, "CpuWorker-");
+            case "platform":
+                // We give the back-office a larger team (e.g., 20 threads)
+                return pooledExecutor(admissionControl, 20, queueCapacity, "AsyncWorker-");
+            default:
+                throw new IllegalArgumentException("Unknown primes.executor.mode: " + mode);
+        }
+    }
+
+    private Executor pooledExecutor(AdmissionControl admissionControl, int threads, int queueCapacity, String prefix) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        // We give the back-office a larger team (e.g., 20 threads)
-        executor.setCorePoolSize(20);
-        executor.setMaxPoolSize(20);
-        executor.setQueueCapacity(500);
-        executor.setThreadNamePrefix("AsyncWorker-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(prefix);
+        executor.setTaskDecorator(admissionControl); // Tracks queue depth and wait time
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    private Executor virtualThreadExecutor(AdmissionControl admissionControl) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("VirtualWorker-");
+        executor.setTaskDecorator(admissionControl);
+        try {
+            executor.setVirtualThreads(true);
+        } catch (UnsupportedOperationException e) {
+            // Virtual threads need JDK 21+. A platform thread per task has no upper bound, so refuse to start instead.
+            throw new IllegalStateException("primes.executor.mode=virtual needs JDK 21+ (running on "
+                    + Runtime.version().feature() + "), use platform or cpu", e);
+        }
+        return executor;
+    }
+
+    // CPU-bound range sieving gets its own pool: one worker per core, more would only add context switches
+    @Bean(name = "primeRangePool", destroyMethod = "shutdown")
+    public ForkJoinPool primeRangePool() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+}
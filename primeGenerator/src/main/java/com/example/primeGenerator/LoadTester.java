@@ -1,53 +1,275 @@
-// package com.example.primeGenerator;
+package com.example.primeGenerator;
 
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-loop load generator. Usable against every service in this repo:
+//
+//   mvn -q compile exec:java -Dexec.mainClass=com.example.primeGenerator.LoadTester \
+//       -Dexec.args="--url=http://localhost:8080/primes?n=50000 --rate=50 --duration=30 --warmup=5"
+//
+// The old version started 50 threads that each sent one request and waited for it (closed loop).
+// A closed loop "politely" stops sending while the server is stuck, so the worst stalls never show
+// up in the numbers (coordinated omission). Here requests are fired on a fixed schedule whether or
+// not earlier ones came back, and latency is measured from the moment each request SHOULD have been sent.
+// Only 2xx answers are successes: a fast 429 or 503 from a service that sheds load is an error, not good latency.
 
 public class LoadTester {
-    public static void main(String[] args) throws InterruptedException {
-        // We simulate 50 users trying to access the site at the exact same moment
-        int concurrentUsers = 50; 
-        ExecutorService executor = Executors.newFixedThreadPool(concurrentUsers);
-        HttpClient client = HttpClient.newHttpClient();
-
-        System.out.println("--- STARTING ATTACK WITH " + concurrentUsers + " USERS ---");
-        long globalStart = System.currentTimeMillis();
-
-        for (int i = 0; i < concurrentUsers; i++) {
-            int userId = i;
-            executor.submit(() -> {
-                long reqStart = System.currentTimeMillis();
-                try {
-                    // Lower the 'n' value if your computer freezes completely
-                    HttpRequest request = HttpRequest.newBuilder()
-                            .uri(URI.create("http://localhost:8080/primes?n=50000")) 
-                            .GET()
-                            .build();
-
-                    client.send(request, HttpResponse.BodyHandlers.ofString());
-                    
-                    long reqEnd = System.currentTimeMillis();
-                    long totalTime = reqEnd - reqStart;
-                    
-                    // If totalTime is much higher than processing time (~500ms), 
-                    // it means the request was stuck in the queue!
-                    System.out.println("User " + userId + " finished in: " + totalTime + "ms");
-                    
-                } catch (Exception e) {
-                    System.err.println("User " + userId + " failed: " + e.getMessage());
+
+    // Histograms track 1us .. 1h with 3 significant digits
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    static final String USAGE = """
+            Usage: LoadTester [--url=URL] [--method=GET] [--header=Name:Value ...] [--rate=50]
+                              [--duration=30] [--warmup=5] [--timeout=30] [--max-in-flight=10000] [--json=FILE]
+            """;
+
+    public record Options(URI url, String method, Map<String, String> headers, double rate,
+                          Duration duration, Duration warmup, Duration timeout, int maxInFlight) {
+
+        static Options parse(String... args) {
+            URI url = URI.create("http://localhost:8080/primes?n=50000");
+            String method = "GET";
+            Map<String, String> headers = new TreeMap<>();
+            double rate = 50;
+            Duration duration = Duration.ofSeconds(30);
+            Duration warmup = Duration.ofSeconds(5);
+            Duration timeout = Duration.ofSeconds(30);
+            int maxInFlight = 10_000;
+
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+                }
+                String name = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                switch (name) {
+                    case "url" -> url = URI.create(value);
+                    case "method" -> method = value.toUpperCase(Locale.ROOT);
+                    case "header" -> {
+                        int colon = value.indexOf(':');
+                        if (colon <= 0) {
+                            throw new IllegalArgumentException("--header must be Name:Value but got: " + value);
+                        }
+                        headers.put(value.substring(0, colon).trim(), value.substring(colon + 1).trim());
+                    }
+                    case "rate" -> rate = Double.parseDouble(value);
+                    case "duration" -> duration = parseDuration(value);
+                    case "warmup" -> warmup = parseDuration(value);
+                    case "timeout" -> timeout = parseDuration(value);
+                    case "max-in-flight" -> maxInFlight = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Unknown option: --" + name);
+                }
+            }
+            if (rate <= 0) {
+                throw new IllegalArgumentException("--rate must be positive");
+            }
+            return new Options(url, method, headers, rate, duration, warmup, timeout, maxInFlight);
+        }
+
+        // "30" and "30s" are seconds, "500ms" is milliseconds
+        private static Duration parseDuration(String value) {
+            if (value.endsWith("ms")) return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            if (value.endsWith("s")) return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            return Duration.ofSeconds(Long.parseLong(value));
+        }
+    }
+
+    public record Result(Options options, Histogram correctedMicros, Histogram serviceMicros,
+                         Map<Integer, Long> statusCounts, long errors, long dropped, double elapsedSeconds) {
+
+        long completed() {
+            return correctedMicros.getTotalCount();
+        }
+
+        double throughput() {
+            return elapsedSeconds == 0 ? 0 : completed() / elapsedSeconds;
+        }
+
+        public String toText() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.ROOT, "--- %s %s @ %.1f req/s for %ds (warm-up %ds) ---%n",
+                    options.method(), options.url(), options.rate(),
+                    options.duration().toSeconds(), options.warmup().toSeconds()));
+            out.append(String.format(Locale.ROOT, "Completed: %d | Throughput: %.1f req/s | Errors: %d (of which dropped: %d)%n",
+                    completed(), throughput(), errors, dropped));
+            out.append("Status codes: ").append(statusCounts).append(System.lineSeparator());
+            out.append(String.format(Locale.ROOT, "%-28s %10s %10s %10s %10s %10s%n",
+                    "Latency (ms)", "p50", "p90", "p99", "p99.9", "max"));
+            appendRow(out, "Corrected (from schedule)", correctedMicros);
+            appendRow(out, "Uncorrected (service time)", serviceMicros);
+            return out.toString();
+        }
+
+        private static void appendRow(StringBuilder out, String label, Histogram h) {
+            out.append(String.format(Locale.ROOT, "%-28s %10.2f %10.2f %10.2f %10.2f %10.2f%n", label,
+                    ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)), ms(h.getValueAtPercentile(99)),
+                    ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue())));
+        }
+
+        public String toJson() {
+            StringBuilder status = new StringBuilder();
+            statusCounts.forEach((code, count) ->
+                    status.append(status.length() == 0 ? "" : ",").append('"').append(code).append("\":").append(count));
+            return String.format(Locale.ROOT,
+                    "{\"url\":\"%s\",\"method\":\"%s\",\"targetRate\":%.3f,\"durationSeconds\":%d,\"warmupSeconds\":%d,"
+                            + "\"completed\":%d,\"throughput\":%.3f,\"errors\":%d,\"dropped\":%d,\"status\":{%s},"
+                            + "\"latencyMs\":%s,\"serviceTimeMs\":%s}",
+                    options.url().toString().replace("\"", "\\\""), options.method(), options.rate(),
+                    options.duration().toSeconds(), options.warmup().toSeconds(),
+                    completed(), throughput(), errors, dropped, status, percentilesJson(correctedMicros),
+                    percentilesJson(serviceMicros));
+        }
+
+        private static String percentilesJson(Histogram h) {
+            return String.format(Locale.ROOT, "{\"p50\":%.3f,\"p90\":%.3f,\"p99\":%.3f,\"p99.9\":%.3f,\"max\":%.3f}",
+                    ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)), ms(h.getValueAtPercentile(99)),
+                    ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()));
+        }
+
+        private static double ms(long micros) {
+            return micros / 1000.0;
+        }
+    }
+
+    public static Result run(Options options) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout())
+                .build();
+        HttpRequest request = buildRequest(options);
+
+        Histogram corrected = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+        Histogram service = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+        Map<Integer, AtomicLong> statusCounts = new ConcurrentHashMap<>();
+        AtomicLong errors = new AtomicLong();
+        AtomicInteger inFlight = new AtomicInteger();
+        Set<Long> awaited = ConcurrentHashMap.newKeySet(); // Measured requests without an answer yet
+        long dropped = 0;
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+
+        // The schedule: request i is due at start + i * interval, no matter what happened to request i-1
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) break;
+
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            boolean measured = intended >= measureFrom;
+            if (inFlight.get() >= options.maxInFlight()) {
+                // The target is so far behind that we refuse to pile up more sockets. A user would have got no
+                // answer either, so it counts as an error: leaving it out would hide the worst moments again.
+                if (measured) {
+                    dropped++;
+                    errors.incrementAndGet();
+                }
+                continue;
+            }
+
+            inFlight.incrementAndGet();
+            long id = i;
+            if (measured) awaited.add(id);
+            long sentAt = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long now = System.nanoTime();
+                inFlight.decrementAndGet();
+                // Not measured, or already written off as never came back
+                if (!measured || !awaited.remove(id)) return;
+                if (failure != null) {
+                    errors.incrementAndGet();
+                    return;
+                }
+                int code = response.statusCode();
+                statusCounts.computeIfAbsent(code, c -> new AtomicLong()).incrementAndGet();
+                if (code < 200 || code >= 300) {
+                    errors.incrementAndGet();
+                    return;
                 }
+                corrected.recordValue(Math.min(MAX_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(now - intended)));
+                service.recordValue(Math.min(MAX_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(now - sentAt)));
             });
         }
 
-        executor.shutdown();
-        executor.awaitTermination(2, TimeUnit.MINUTES);
-        
-        long globalEnd = System.currentTimeMillis();
-        System.out.println("--- TEST COMPLETED IN " + (globalEnd - globalStart) + "ms ---");
+        // Give stragglers a chance to finish (they still count, that is the whole point)
+        long drainDeadline = System.nanoTime() + options.timeout().toNanos();
+        while (!awaited.isEmpty() && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        // Never came back. Removing them first means an answer arriving now is not counted as well.
+        for (Long id : awaited) {
+            if (awaited.remove(id)) errors.incrementAndGet();
+        }
+
+        // Throughput is over the measured window; the drain only collects answers to requests sent within it
+        double elapsed = (end - measureFrom) / 1e9;
+        Map<Integer, Long> status = new TreeMap<>();
+        statusCounts.forEach((code, count) -> status.put(code, count.get()));
+        return new Result(options, corrected, service, status, errors.get(), dropped, elapsed);
+    }
+
+    private static HttpRequest buildRequest(Options options) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(options.url()).timeout(options.timeout());
+        options.headers().forEach(builder::header);
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+        return builder.method(options.method(), body).build();
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        List<String> toolArgs = new ArrayList<>();
+        Path jsonFile = null;
+        for (String arg : args) {
+            if (arg.startsWith("--json=")) {
+                jsonFile = Path.of(arg.substring("--json=".length()));
+            } else {
+                toolArgs.add(arg);
+            }
+        }
+
+        Options options;
+        try {
+            options = Options.parse(toolArgs.toArray(String[]::new));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        System.out.println("--- STARTING OPEN-LOOP LOAD: " + options.rate() + " req/s against " + options.url() + " ---");
+
+        Result result = run(options);
+        System.out.print(result.toText());
+
+        String json = result.toJson();
+        if (jsonFile != null) {
+            Files.writeString(jsonFile, json + System.lineSeparator());
+            System.out.println("JSON report written to " + jsonFile);
+        } else {
+            System.out.println(json);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,38 @@
 package com.example.primeGenerator;
 
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 public class PrimeController {
 
+    private final PrimeSieve primeSieve;
+    private final PrimeRangeStreamer primeRangeStreamer;
+    private final AdmissionControl admissionControl;
+    private final PrimeResultCache resultCache;
+    private final Executor taskExecutor;
+
+    public PrimeController(PrimeSieve primeSieve, PrimeRangeStreamer primeRangeStreamer,
+                           AdmissionControl admissionControl, PrimeResultCache resultCache,
+                           @Qualifier("taskExecutor") Executor taskExecutor) {
+        this.primeSieve = primeSieve;
+        this.primeRangeStreamer = primeRangeStreamer;
+        this.admissionControl = admissionControl;
+        this.resultCache = resultCache;
+        this.taskExecutor = taskExecutor;
+    }
+
     @GetMapping("/health")
     public String healthCheck() {
         return "I am alive! " + System.currentTimeMillis();
@@ -16,26 +40,57 @@ public class PrimeController {
 
     // STEP 1: Change the return type to CompletableFuture
     // This tells Spring: "I will give you the result later, go free up the thread now."
+    // STEP 2: The heavy work runs on the "taskExecutor" pool. We submit it through PrimeResultCache
+    // instead of @Async, so identical requests share one computation and never hold a worker while waiting.
     @GetMapping("/primes")
-    @Async("taskExecutor") // STEP 2: Tell Spring to run this in a separate thread pool
-    public CompletableFuture<String> getNthPrime(@RequestParam(defaultValue = "20000") int n) {
-        
+    public CompletableFuture<String> getNthPrime(@RequestParam(defaultValue = "20000") int n,
+                                                 @RequestParam(defaultValue = "sieve") String engine) {
+        PrimeSieve.checkN(n);
         long startTime = System.currentTimeMillis();
-        
-        // This heavy work now happens on a "task-1", "task-2" thread, NOT "http-nio-8080-exec-1"
-        long prime = calculatePrime(n);
-        
-        long duration = System.currentTimeMillis() - startTime;
-        String log = String.format("Calculated %dth prime in %dms | Thread: %s", 
-                n, duration, Thread.currentThread().getName());
-        
-        System.out.println(log);
-        
-        // Return the result wrapped in a Future
-        return CompletableFuture.completedFuture(log);
-    }
-
-    private long calculatePrime(int n) {
+
+        // engine=trial keeps the original trial-division code around so the two can be compared
+        PrimeResultCache.Key key = PrimeResultCache.Key.of(engine, n);
+        PrimeResultCache.Lookup lookup;
+        try {
+            lookup = resultCache.get(key, () -> key.isTrial() ? calculatePrime(n) : primeSieve.nthPrime(n), taskExecutor);
+        } catch (TaskRejectedException e) {
+            admissionControl.recordExecutorRejection();
+            throw e;
+        }
+
+        return lookup.result().thenApply(prime -> {
+            long duration = System.currentTimeMillis() - startTime;
+            // This heavy work happened on an "AsyncWorker-" thread, NOT "http-nio-8080-exec-1"
+            String log = String.format("Calculated %dth prime (%d) in %dms | Engine: %s | Cache: %s | Thread: %s",
+                    n, prime, duration, engine, lookup.outcome(), Thread.currentThread().getName());
+
+            System.out.println(log);
+            return log;
+        });
+    }
+
+    // Every prime in [from, to], one per line, streamed in order while the ForkJoinPool sieves ahead
+    @GetMapping(value = "/primes/range", produces = MediaType.TEXT_PLAIN_VALUE)
+    public StreamingResponseBody getPrimesInRange(@RequestParam long from, @RequestParam long to) {
+        primeRangeStreamer.validate(from, to);
+        return out -> primeRangeStreamer.stream(from, to, out);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    // Last line of defence: the executor queue itself is full (AdmissionControl disabled or too generous)
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> executorFull(TaskRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControl.retryAfterSeconds()))
+                .body("Server busy, please retry later.");
+    }
+
+    // The original engine: trial division of every candidate (slow, kept as the baseline)
+    static long calculatePrime(int n) {
         int count = 0;
         long num = 2;
         while (count < n) {
@@ -45,7 +100,7 @@ public class PrimeController {
         return num - 1;
     }
 
-    private boolean isPrime(long num) {
+    static boolean isPrime(long num) {
         if (num < 2) return false;
         for (long i = 2; i <= num / 2; i++) {
             if (num % i == 0) return false;
@@ -0,0 +1,77 @@
+package com.example.primeGenerator;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Finds every prime in [from, to] by sieving chunks of the interval in parallel on a ForkJoinPool.
+// Chunks are written to the client in order as they finish, and only a small window of chunks is
+// ever in flight, so memory stays flat no matter how wide the range is.
+
+@Component
+public class PrimeRangeStreamer {
+
+    // Each task sieves 32 cache-sized segments (~1M numbers, ~50K primes near 10^9)
+    static final long CHUNK_SIZE = 32L * PrimeSieve.SEGMENT_SIZE;
+
+    // sqrt(10^12) = 10^6, so the base primes every task shares stay tiny
+    public static final long MAX_TO = 1_000_000_000_000L;
+
+    private final ForkJoinPool pool;
+
+    public PrimeRangeStreamer(@Qualifier("primeRangePool") ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Called before streaming starts, so a bad request still gets a proper 400 instead of a half-written body
+    public void validate(long from, long to) {
+        if (from < 0 || to < from || to > MAX_TO) {
+            throw new IllegalArgumentException(
+                    "Expected 0 <= from <= to <= " + MAX_TO + " but got from=" + from + ", to=" + to);
+        }
+    }
+
+    public void stream(long from, long to, OutputStream out) throws IOException {
+        validate(from, to);
+
+        long end = to + 1; // 'to' is inclusive
+        int[] basePrimes = PrimeSieve.simpleSieve((int) Math.sqrt(end) + 1);
+
+        // At most 2 chunks per core are sieved ahead of the writer
+        int window = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<byte[]>> inFlight = new ArrayDeque<>(window);
+        long next = from;
+
+        try {
+            while (next < end || !inFlight.isEmpty()) {
+                // 1. Keep every core busy with the next chunks
+                while (inFlight.size() < window && next < end) {
+                    long low = next;
+                    long high = Math.min(next + CHUNK_SIZE, end);
+                    inFlight.addLast(pool.submit(() -> sieveChunk(low, high, basePrimes)));
+                    next = high;
+                }
+
+                // 2. Write the oldest chunk as soon as it is done (order is preserved)
+                out.write(inFlight.pollFirst().join());
+                out.flush();
+            }
+        } finally {
+            // Client went away (or something failed): stop sieving chunks nobody will read
+            inFlight.forEach(task -> task.cancel(true));
+        }
+    }
+
+    // Runs on a ForkJoinPool worker; encoding happens here too, so the writer thread only copies bytes
+    static byte[] sieveChunk(long low, long high, int[] basePrimes) {
+        StringBuilder text = new StringBuilder();
+        PrimeSieve.sieveRange(low, high, basePrimes, prime -> text.append(prime).append('\n'));
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.primeGenerator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+// "Single-flight" for /primes: 50 identical requests arriving together cost ONE computation.
+//   1. HIT:       the answer is in the bounded result cache, return it immediately
+//   2. COALESCED: someone is already computing it, share their CompletableFuture
+//   3. MISS:      we are first, compute it on the executor and publish the result for everyone
+
+@Component
+public class PrimeResultCache {
+
+    public enum Outcome { HIT, MISS, COALESCED }
+
+    public record Key(String engine, int n) {
+        // Anything that is not "trial" runs on the sieve, so it shares the sieve's entries
+        public static Key of(String engine, int n) {
+            return new Key("trial".equalsIgnoreCase(engine) ? "trial" : "sieve", n);
+        }
+
+        boolean isTrial() {
+            return "trial".equals(engine);
+        }
+    }
+
+    public record Lookup(CompletableFuture<Long> result, Outcome outcome) {}
+
+    private final Map<Key, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, Long> results;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public PrimeResultCache(MeterRegistry registry, @Value("${primes.cache.max-size:10000}") int maxSize) {
+        // Access-ordered LinkedHashMap = LRU. Guarded by its own lock, every operation on it is O(1).
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        this.hits = Counter.builder("primes.cache").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("primes.cache").tag("result", "miss").register(registry);
+        this.coalesced = Counter.builder("primes.cache").tag("result", "coalesced").register(registry);
+        Gauge.builder("primes.cache.size", this, PrimeResultCache::size).register(registry);
+        Gauge.builder("primes.cache.in.flight", inFlight, Map::size).register(registry);
+    }
+
+    public Lookup get(Key key, LongSupplier compute, Executor executor) {
+        Long cached = cachedResult(key);
+        if (cached != null) {
+            hits.increment();
+            return new Lookup(CompletableFuture.completedFuture(cached), Outcome.HIT);
+        }
+
+        CompletableFuture<Long> mine = new CompletableFuture<>();
+        CompletableFuture<Long> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return new Lookup(existing, Outcome.COALESCED);
+        }
+
+        // The previous flight may have landed between our cache check and putIfAbsent
+        cached = cachedResult(key);
+        if (cached != null) {
+            inFlight.remove(key, mine);
+            mine.complete(cached);
+            hits.increment();
+            return new Lookup(mine, Outcome.HIT);
+        }
+
+        misses.increment();
+        try {
+            executor.execute(() -> {
+                long value;
+                try {
+                    value = compute.getAsLong();
+                } catch (Throwable t) {
+                    // Leave the in-flight map first, so nobody new joins a flight that already failed
+                    inFlight.remove(key, mine);
+                    mine.completeExceptionally(t);
+                    return;
+                }
+                // Cache first, then leave the in-flight map, then complete: a newcomer always finds one of them
+                synchronized (results) {
+                    results.put(key, value);
+                }
+                inFlight.remove(key, mine);
+                mine.complete(value);
+            });
+        } catch (RuntimeException rejected) {
+            // Executor refused the work: fail everyone who joined this flight, and let the caller see why
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(rejected);
+            throw rejected;
+        }
+        return new Lookup(mine, Outcome.MISS);
+    }
+
+    // Also counts answers that are being computed right now: joining them is free
+    public boolean contains(Key key) {
+        if (inFlight.containsKey(key)) {
+            return true;
+        }
+        synchronized (results) {
+            return results.containsKey(key); // containsKey does not touch the LRU order
+        }
+    }
+
+    public int size() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    private Long cachedResult(Key key) {
+        synchronized (results) {
+            return results.get(key); // get() also refreshes the LRU position
+        }
+    }
+}
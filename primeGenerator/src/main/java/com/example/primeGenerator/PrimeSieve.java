@@ -0,0 +1,150 @@
+package com.example.primeGenerator;
+
+import org.springframework.stereotype.Component;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// The "fast" prime engine: a segmented Sieve of Eratosthenes plus a prime table shared by every request.
+// Trial division re-checks every candidate from scratch; the sieve crosses off multiples once and remembers the answer.
+
+@Component
+public class PrimeSieve {
+
+    // 32 KB of flags per segment, so the working set stays inside the CPU's L1/L2 cache
+    static final int SEGMENT_SIZE = 32 * 1024;
+
+    // The 10,000,000th prime is 179,424,673, so the table stays well inside an int[] (~40 MB when full)
+    public static final int MAX_N = 10_000_000;
+
+    // Snapshot of everything sieved so far: primes[0..count) are all the primes below 'limit'
+    private record Table(int[] primes, int count, long limit) {}
+
+    // Readers never lock: they grab the current snapshot and look the answer up
+    private volatile Table table = new Table(new int[0], 0, 2);
+
+    public long nthPrime(int n) {
+        checkN(n);
+
+        // 1. FAST PATH: someone already sieved far enough, this is just an array lookup
+        Table current = table;
+        if (current.count() >= n) {
+            return current.primes()[n - 1];
+        }
+
+        // 2. SLOW PATH: grow the shared table (only one thread extends it at a time)
+        return extendTo(n).primes()[n - 1];
+    }
+
+    public static void checkN(int n) {
+        if (n < 1 || n > MAX_N) {
+            throw new IllegalArgumentException("n must be between 1 and " + MAX_N + " but was " + n);
+        }
+    }
+
+    // How many primes are cached right now (handy for logs and tests)
+    public int cachedCount() {
+        return table.count();
+    }
+
+    private synchronized Table extendTo(int n) {
+        Table current = table;
+        if (current.count() >= n) {
+            return current; // Another request grew the table while we were waiting
+        }
+
+        // Sieve everything up to a bound that is guaranteed to contain the nth prime
+        long to = upperBound(n) + 1;
+        int[] basePrimes = simpleSieve((int) Math.sqrt(to) + 1);
+
+        PrimeBuffer buffer = new PrimeBuffer(current.primes(), current.count());
+        sieveRange(current.limit(), to, basePrimes, buffer);
+
+        // Publishing the new snapshot through the volatile field makes the appended slots visible to readers.
+        // Old snapshots still see a valid prefix of the same array, because we only ever write past their count.
+        Table grown = new Table(buffer.primes, buffer.count, to);
+        table = grown;
+        return grown;
+    }
+
+    // Appends sieved primes onto the shared array, doubling it when full
+    private static final class PrimeBuffer implements LongConsumer {
+        private int[] primes;
+        private int count;
+
+        PrimeBuffer(int[] primes, int count) {
+            this.primes = primes;
+            this.count = count;
+        }
+
+        @Override
+        public void accept(long prime) {
+            if (count == primes.length) {
+                primes = Arrays.copyOf(primes, Math.max(1024, primes.length * 2));
+            }
+            primes[count++] = (int) prime;
+        }
+    }
+
+    // Rosser's theorem: for n >= 6, p(n) < n * (ln n + ln ln n)
+    static long upperBound(int n) {
+        if (n < 6) {
+            return 13;
+        }
+        double logN = Math.log(n);
+        return (long) Math.ceil(n * (logN + Math.log(logN)));
+    }
+
+    // Plain sieve for the small "base" primes (everything up to sqrt of the range we want)
+    static int[] simpleSieve(int limit) {
+        if (limit < 2) {
+            return new int[0];
+        }
+        boolean[] composite = new boolean[limit + 1];
+        int found = 0;
+        for (int i = 2; i <= limit; i++) {
+            if (!composite[i]) {
+                found++;
+                for (long j = (long) i * i; j <= limit; j += i) {
+                    composite[(int) j] = true;
+                }
+            }
+        }
+        int[] primes = new int[found];
+        int idx = 0;
+        for (int i = 2; i <= limit; i++) {
+            if (!composite[i]) primes[idx++] = i;
+        }
+        return primes;
+    }
+
+    // Emits every prime in [from, to) in ascending order, one cache-sized segment at a time.
+    // basePrimes must contain every prime up to sqrt(to).
+    static void sieveRange(long from, long to, int[] basePrimes, LongConsumer sink) {
+        boolean[] composite = new boolean[SEGMENT_SIZE];
+        for (long low = Math.max(from, 2); low < to; low += SEGMENT_SIZE) {
+            long high = Math.min(low + SEGMENT_SIZE, to);
+            sieveSegment(low, high, basePrimes, composite, sink);
+        }
+    }
+
+    static void sieveSegment(long low, long high, int[] basePrimes, boolean[] composite, LongConsumer sink) {
+        int size = (int) (high - low);
+        Arrays.fill(composite, 0, size, false);
+
+        for (int p : basePrimes) {
+            long square = (long) p * p;
+            if (square >= high) break;
+            // First multiple of p inside the segment (never below p*p, smaller multiples were crossed off by smaller primes)
+            long start = Math.max(square, ((low + p - 1) / p) * p);
+            for (long j = start; j < high; j += p) {
+                composite[(int) (j - low)] = true;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (!composite[i] && low + i >= 2) {
+                sink.accept(low + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.primeGenerator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AdmissionControl admissionControl(int maxQueueDepth, long maxPendingWorkMs) {
+        return new AdmissionControl(new PrimeSieve(), new PrimeResultCache(registry, 100), registry, true,
+                maxQueueDepth, maxPendingWorkMs);
+    }
+
+    @Test
+    void shedsOnceEstimatedWorkExceedsTheBudget() {
+        AdmissionControl control = admissionControl(100, 1_000);
+
+        assertTrue(control.tryAdmit(600_000));
+        assertFalse(control.tryAdmit(600_000));
+        assertEquals(1.0, registry.counter("primes.rejected", "reason", "pending-work").count());
+
+        control.release(600_000);
+        assertTrue(control.tryAdmit(600_000));
+    }
+
+    @Test
+    void anIdleServerAlwaysAdmits() {
+        AdmissionControl control = admissionControl(100, 1);
+        assertTrue(control.tryAdmit(50_000_000));
+    }
+
+    @Test
+    void shedsOnQueueDepth() {
+        AdmissionControl control = admissionControl(2, 60_000);
+        Runnable first = control.decorate(() -> {});
+        control.decorate(() -> {});
+
+        assertEquals(2, control.queueDepth());
+        assertFalse(control.tryAdmit(1));
+
+        first.run(); // A worker picked one up
+        assertEquals(1, control.queueDepth());
+        assertTrue(control.tryAdmit(1));
+        assertEquals(1, registry.timer("primes.executor.wait").count());
+    }
+
+    @Test
+    void trialDivisionIsPricedFarAboveTheSieve() {
+        AdmissionControl control = admissionControl(100, 60_000);
+        assertTrue(control.estimateCostMicros(50_000, "trial") > 100 * control.estimateCostMicros(50_000, "sieve"));
+    }
+
+    @Test
+    void retryAfterGrowsWithTheBacklog() {
+        AdmissionControl control = admissionControl(100, Long.MAX_VALUE / 1000);
+        assertEquals(1, control.retryAfterSeconds());
+
+        long cores = Runtime.getRuntime().availableProcessors();
+        control.tryAdmit(cores * 30_000_000); // 30s of work on every core
+        assertTrue(control.retryAfterSeconds() >= 30);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.primeGenerator;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadTesterTests {
+
+    private HttpServer server;
+
+    @AfterEach
+    void stop() {
+        if (server != null) server.stop(0);
+    }
+
+    // A single-threaded target that takes 50ms per request: a queue builds up behind it
+    private String startSlowServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/slow", exchange -> {
+            try { Thread.sleep(50); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.start();
+        return "http://localhost:" + server.getAddress().getPort() + "/slow";
+    }
+
+    @Test
+    void keepsTheScheduleAndChargesQueueingToTheLatency() throws Exception {
+        String url = startSlowServer();
+
+        // 40 req/s against a server that can do 20 req/s: open loop keeps sending anyway
+        LoadTester.Result result = LoadTester.run(LoadTester.Options.parse(
+                "--url=" + url, "--rate=40", "--duration=2", "--warmup=0", "--timeout=10"));
+
+        assertEquals(80, result.completed() + result.errors());
+        assertEquals(80L, result.statusCounts().get(200));
+        // 80 x 50ms of work arrive within 2s, so the last requests queue for ~2s. A closed loop would never see that.
+        assertTrue(result.correctedMicros().getMaxValue() > 1_000_000);
+        assertTrue(result.correctedMicros().getValueAtPercentile(99) >= result.serviceMicros().getValueAtPercentile(99));
+        assertTrue(result.toJson().contains("\"p99.9\""));
+        assertTrue(result.toText().contains("Corrected (from schedule)"));
+    }
+
+    @Test
+    void warmupRequestsAreNotRecorded() throws Exception {
+        String url = startSlowServer();
+
+        LoadTester.Result result = LoadTester.run(LoadTester.Options.parse(
+                "--url=" + url, "--rate=10", "--duration=1", "--warmup=1"));
+
+        assertEquals(10, result.completed());
+    }
+
+    @Test
+    void rejectsUnknownOptions() {
+        assertThrows(IllegalArgumentException.class, () -> LoadTester.Options.parse("--threads=50"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTester.Options.parse("--rate=0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTester.Options.parse("--header=X-User-ID"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTester.Options.parse("--header=:Hacker"));
+        assertEquals("Hacker", LoadTester.Options.parse("--header=X-User-ID: Hacker").headers().get("X-User-ID"));
+    }
+
+    @Test
+    void requestsDroppedAtMaxInFlightCountAsErrors() throws Exception {
+        String url = startSlowServer();
+
+        // One request at a time against a 50ms server, asked for 40 req/s: about half cannot even be sent
+        LoadTester.Result result = LoadTester.run(LoadTester.Options.parse(
+                "--url=" + url, "--rate=40", "--duration=2", "--warmup=0", "--timeout=10", "--max-in-flight=1"));
+
+        assertTrue(result.dropped() > 0);
+        assertTrue(result.errors() >= result.dropped());
+        assertEquals(80, result.completed() + result.errors()); // Every scheduled request is accounted for
+    }
+
+    @Test
+    void fastRejectionsAreErrorsNotGoodLatency() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/shed", exchange -> {
+            exchange.sendResponseHeaders(503, -1); // Load shedding: instant, and useless to the user
+            exchange.close();
+        });
+        server.start();
+
+        LoadTester.Result result = LoadTester.run(LoadTester.Options.parse(
+                "--url=http://localhost:" + server.getAddress().getPort() + "/shed",
+                "--rate=20", "--duration=1", "--warmup=0"));
+
+        assertEquals(0, result.completed());
+        assertEquals(0, result.throughput());
+        assertEquals(20, result.errors());
+        assertEquals(20L, result.statusCounts().get(503));
+    }
+
+    @Test
+    void throughputIsOverTheMeasuredWindowNotTheDrain() throws Exception {
+        String url = startSlowServer();
+
+        // The last requests are answered up to ~1s after the window closes
+        LoadTester.Result result = LoadTester.run(LoadTester.Options.parse(
+                "--url=" + url, "--rate=40", "--duration=1", "--warmup=0", "--timeout=10"));
+
+        assertEquals(1.0, result.elapsedSeconds());
+        assertEquals(40, result.completed());
+        assertEquals(40.0, result.throughput());
+    }
+
+    @Test
+    void warmupRequestsStillInFlightAreNotErrors() throws Exception {
+        String url = startSlowServer();
+
+        // A 2s warm-up queue at 40 req/s against a 20 req/s server; the drain gives up before it clears
+        LoadTester.Result result = LoadTester.run(LoadTester.Options.parse(
+                "--url=" + url, "--rate=40", "--duration=1", "--warmup=2", "--timeout=1"));
+
+        assertEquals(40, result.completed() + result.errors()); // Only the measured requests are accounted for
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.primeGenerator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrimeRangeStreamerTests {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final PrimeRangeStreamer streamer = new PrimeRangeStreamer(pool);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void streamsTheSamePrimesAsASingleThreadedSieveAcrossManyChunks() throws Exception {
+        long to = 20 * PrimeRangeStreamer.CHUNK_SIZE + 17; // More chunks than the in-flight window
+
+        StringBuilder expected = new StringBuilder();
+        for (int prime : PrimeSieve.simpleSieve((int) to)) {
+            expected.append(prime).append('\n');
+        }
+
+        assertEquals(expected.toString(), stream(0, to));
+    }
+
+    @Test
+    void matchesTrialDivisionNearOneBillion() throws Exception {
+        long from = 1_000_000_000L;
+        long to = from + 2_000;
+
+        StringBuilder expected = new StringBuilder();
+        for (long num = from; num <= to; num++) {
+            if (isPrimeBySqrtTrialDivision(num)) expected.append(num).append('\n');
+        }
+
+        assertEquals(expected.toString(), stream(from, to));
+    }
+
+    @Test
+    void boundsAreInclusive() throws Exception {
+        assertEquals("2\n3\n5\n7\n", stream(0, 7));
+        assertEquals("7\n", stream(7, 7));
+        assertEquals("", stream(8, 10));
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        assertThrows(IllegalArgumentException.class, () -> streamer.validate(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> streamer.validate(10, 9));
+        assertThrows(IllegalArgumentException.class, () -> streamer.validate(0, PrimeRangeStreamer.MAX_TO + 1));
+    }
+
+    // The controller's isPrime goes up to num / 2, which is far too slow near 10^9
+    private static boolean isPrimeBySqrtTrialDivision(long num) {
+        if (num < 2) return false;
+        for (long i = 2; i * i <= num; i++) {
+            if (num % i == 0) return false;
+        }
+        return true;
+    }
+
+    private String stream(long from, long to) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        streamer.stream(from, to, out);
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+}
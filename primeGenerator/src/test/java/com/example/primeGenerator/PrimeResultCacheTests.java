@@ -0,0 +1,103 @@
+package com.example.primeGenerator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrimeResultCacheTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private double count(String result) {
+        return registry.counter("primes.cache", "result", result).count();
+    }
+
+    @Test
+    void fiftyIdenticalRequestsCostOneComputation() throws Exception {
+        PrimeResultCache cache = new PrimeResultCache(registry, 100);
+        PrimeResultCache.Key key = PrimeResultCache.Key.of("sieve", 50_000);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<Long>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(cache.get(key, () -> {
+                computations.incrementAndGet();
+                try { release.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                return 611_953L;
+            }, executor).result());
+        }
+        release.countDown();
+
+        for (CompletableFuture<Long> result : results) {
+            assertEquals(611_953L, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, computations.get());
+        assertEquals(1.0, count("miss"));
+        assertEquals(49.0, count("coalesced"));
+
+        // Later requests are plain cache hits
+        PrimeResultCache.Lookup later = cache.get(key, () -> { throw new AssertionError("recomputed"); }, executor);
+        assertEquals(PrimeResultCache.Outcome.HIT, later.outcome());
+        assertEquals(611_953L, later.result().get());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() throws Exception {
+        PrimeResultCache cache = new PrimeResultCache(registry, 2);
+        PrimeResultCache.Key one = PrimeResultCache.Key.of("sieve", 1);
+        PrimeResultCache.Key two = PrimeResultCache.Key.of("sieve", 2);
+        PrimeResultCache.Key three = PrimeResultCache.Key.of("sieve", 3);
+
+        cache.get(one, () -> 2L, executor).result().get();
+        cache.get(two, () -> 3L, executor).result().get();
+        cache.get(one, () -> 2L, executor).result().get(); // "one" is now the most recently used
+        cache.get(three, () -> 5L, executor).result().get();
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains(one));
+        assertFalse(cache.contains(two));
+        assertTrue(cache.contains(three));
+    }
+
+    @Test
+    void enginesDoNotShareEntries() throws Exception {
+        PrimeResultCache cache = new PrimeResultCache(registry, 100);
+        cache.get(PrimeResultCache.Key.of("sieve", 10), () -> 29L, executor).result().get();
+
+        assertTrue(cache.contains(PrimeResultCache.Key.of("anything-else", 10)));
+        assertFalse(cache.contains(PrimeResultCache.Key.of("trial", 10)));
+    }
+
+    @Test
+    void failuresAreSharedButNotCached() throws Exception {
+        PrimeResultCache cache = new PrimeResultCache(registry, 100);
+        PrimeResultCache.Key key = PrimeResultCache.Key.of("sieve", 7);
+
+        CompletableFuture<Long> failed = cache.get(key, () -> { throw new IllegalStateException("boom"); }, executor).result();
+        assertThrows(ExecutionException.class, failed::get);
+
+        assertEquals(17L, cache.get(key, () -> 17L, executor).result().get());
+        assertEquals(2.0, count("miss"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.primeGenerator;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrimeSieveTests {
+
+    @Test
+    void matchesTrialDivisionForSmallN() {
+        // Walk the numbers once with the original isPrime check instead of calling calculatePrime(n) for every n
+        PrimeSieve sieve = new PrimeSieve();
+        int n = 0;
+        for (long num = 2; n < 5_000; num++) {
+            if (PrimeController.isPrime(num)) {
+                n++;
+                assertEquals(num, sieve.nthPrime(n), "n=" + n);
+            }
+        }
+    }
+
+    @Test
+    void matchesTrialDivisionWhenAskedOutOfOrder() {
+        // Big first, then small, then bigger: exercises both the lookup path and incremental growth
+        int[] order = {1500, 3, 700, 1999, 6, 1, 1200};
+        PrimeSieve sieve = new PrimeSieve();
+        for (int n : order) {
+            assertEquals(PrimeController.calculatePrime(n), sieve.nthPrime(n), "n=" + n);
+        }
+    }
+
+    @Test
+    void knownLargePrimes() {
+        PrimeSieve sieve = new PrimeSieve();
+        assertEquals(104_729L, sieve.nthPrime(10_000));
+        assertEquals(224_737L, sieve.nthPrime(20_000));
+        assertEquals(611_953L, sieve.nthPrime(50_000));
+        assertEquals(15_485_863L, sieve.nthPrime(1_000_000));
+    }
+
+    @Test
+    void smallerRequestsAreAnsweredFromTheSharedTable() {
+        PrimeSieve sieve = new PrimeSieve();
+        sieve.nthPrime(50_000);
+        int cached = sieve.cachedCount();
+
+        assertEquals(7_919L, sieve.nthPrime(1_000));
+        assertEquals(611_953L, sieve.nthPrime(50_000));
+        assertEquals(cached, sieve.cachedCount()); // Nothing was recomputed
+    }
+
+    @Test
+    void concurrentGrowthIsConsistent() throws Exception {
+        PrimeSieve sieve = new PrimeSieve();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                int n = 1_000 * (i % 16 + 1);
+                results.add(CompletableFuture.supplyAsync(() -> sieve.nthPrime(n), pool));
+            }
+
+            PrimeSieve reference = new PrimeSieve();
+            for (int i = 0; i < results.size(); i++) {
+                int n = 1_000 * (i % 16 + 1);
+                assertEquals(reference.nthPrime(n), results.get(i).get(), "n=" + n);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsOutOfRangeN() {
+        PrimeSieve sieve = new PrimeSieve();
+        assertThrows(IllegalArgumentException.class, () -> sieve.nthPrime(0));
+        assertThrows(IllegalArgumentException.class, () -> sieve.nthPrime(PrimeSieve.MAX_N + 1));
+    }
+}
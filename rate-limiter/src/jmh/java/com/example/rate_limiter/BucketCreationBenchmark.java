@@ -0,0 +1,57 @@
+package com.example.rate_limiter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A request from a user the limiter has never seen: the bucket is created on first access (and, in a bounded store
+// that is full, another one is evicted). This is what a flood of random X-User-IDs costs per request.
+// newUserId alone is the baseline: making the ID string is part of every run, subtract it.
+//   mvn -Pjmh test-compile exec:exec -Djmh.args="BucketCreationBenchmark -prof gc"
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BucketCreationBenchmark {
+
+    @Param({"service", "caffeine-cas", "chm", "bucket4j"})
+    public String store;
+
+    BucketStores.Store buckets;
+    final AtomicLong nextUser = new AtomicLong();
+
+    // A new store every iteration: the unbounded ones (chm, bucket4j) would otherwise fill the heap
+    @Setup(Level.Iteration)
+    public void setUp() {
+        buckets = BucketStores.create(store);
+    }
+
+    @Benchmark
+    public long firstRequest() {
+        return buckets.consume(newUserId());
+    }
+
+    @Benchmark
+    public String newUserIdOnly() {
+        return newUserId();
+    }
+
+    private String newUserId() {
+        return "user-" + nextUser.getAndIncrement();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.rate_limiter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// One rate-limit check for a user who already has a bucket: find the bucket, take a token. Compares the stores
+// and buckets of BucketStores under hot-key, uniform and Zipf traffic. Contention: run with -t 4 (or more).
+//   mvn -Pjmh test-compile exec:exec -Djmh.args="BucketStoreBenchmark -t 4 -prof gc"
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BucketStoreBenchmark {
+
+    @Param({"service", "caffeine-cas", "chm", "bucket4j"})
+    public String store;
+
+    @Param({"hot", "uniform", "zipf"})
+    public String distribution;
+
+    // More users than rate-limit.max-buckets (100,000) means the bounded stores evict while measuring
+    @Param({"10000", "1000000"})
+    public int users;
+
+    BucketStores.Store buckets;
+    String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buckets = BucketStores.create(store);
+        keys = UserKeys.keys(users);
+        for (String key : keys) {
+            buckets.consume(key); // Measure requests from known users; BucketCreationBenchmark measures new ones
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        int[] sequence;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(BucketStoreBenchmark benchmark) {
+            sequence = UserKeys.sequence(benchmark.distribution, benchmark.users, Thread.currentThread().getId());
+        }
+
+        String nextUser(String[] keys) {
+            return keys[sequence[next++ & (UserKeys.SEQUENCE_LENGTH - 1)]];
+        }
+    }
+
+    @Benchmark
+    public long check(Requests requests) {
+        return buckets.consume(requests.nextUser(keys));
+    }
+}
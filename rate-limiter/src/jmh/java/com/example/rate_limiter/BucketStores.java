@@ -0,0 +1,75 @@
+package com.example.rate_limiter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// The stores and buckets compared by the benchmarks. Each one answers "may this user make a request, and how many
+// are left?", the question RateLimitFilter asks, with the same limit: CAPACITY per minute, refilled continuously.
+// CAPACITY is large so every request is allowed: the path that runs at high RPS. The functions that create a bucket
+// are made once, like RateLimitPolicy's: a capturing lambda per call would be measured as garbage per request.
+//   service:      RateLimiterService as RateLimitFilter uses it (Caffeine store + synchronized TokenBucket)
+//   caffeine-cas: the same bounded Caffeine store with the lock-free CasTokenBucket (only the bucket differs)
+//   chm:          an unbounded ConcurrentHashMap + TokenBucket (only the store differs)
+//   bucket4j:     the limiter before it was bounded: ConcurrentHashMap + a lock-free Bucket4j Bucket per user
+
+final class BucketStores {
+
+    static final long CAPACITY = 1_000_000_000L;
+    static final Duration PERIOD = Duration.ofMinutes(1);
+    static final long MAX_BUCKETS = 100_000;
+
+    interface Store {
+        long consume(String userId);
+    }
+
+    private BucketStores() {
+    }
+
+    static Store create(String name) {
+        LongSupplier clock = System::nanoTime;
+        return switch (name) {
+            case "service" -> {
+                RateLimitProperties.Policy policy = new RateLimitProperties.Policy("public", "/api/public", null,
+                        List.of(new RateLimitProperties.Bandwidth(CAPACITY, PERIOD)));
+                RateLimiterService service = new RateLimiterService(
+                        new RateLimitProperties(MAX_BUCKETS, 64, "free", Map.of(), List.of(policy), null), clock);
+                yield userId -> service.resolveBucket(service.policyFor("/api/public", userId), userId).consume(1);
+            }
+            case "caffeine-cas" -> {
+                Cache<String, CasTokenBucket> buckets = Caffeine.newBuilder()
+                        .maximumSize(MAX_BUCKETS)
+                        .expireAfterAccess(PERIOD)
+                        .executor(Runnable::run)
+                        .build();
+                Function<String, CasTokenBucket> newBucket = id -> new CasTokenBucket(CAPACITY, PERIOD.toNanos(), clock);
+                yield userId -> buckets.get(userId, newBucket).consume(1);
+            }
+            case "chm" -> {
+                TokenBucket.Limit limit = new TokenBucket.Limit(
+                        List.of(new RateLimitProperties.Bandwidth(CAPACITY, PERIOD)), clock);
+                Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+                Function<String, TokenBucket> newBucket = id -> new TokenBucket(limit);
+                yield userId -> buckets.computeIfAbsent(userId, newBucket).consume(1);
+            }
+            case "bucket4j" -> {
+                Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+                Function<String, Bucket> newBucket = id -> Bucket.builder()
+                        .addLimit(Bandwidth.classic(CAPACITY, Refill.greedy(CAPACITY, PERIOD)))
+                        .build();
+                // tryConsumeAndReturnRemaining: the filter needs what is left for X-RateLimit-Remaining
+                yield userId -> buckets.computeIfAbsent(userId, newBucket).tryConsumeAndReturnRemaining(1).getRemainingTokens();
+            }
+            default -> throw new IllegalArgumentException("Unknown store " + name);
+        };
+    }
+}
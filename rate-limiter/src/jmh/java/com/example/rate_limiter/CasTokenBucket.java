@@ -0,0 +1,42 @@
+package com.example.rate_limiter;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
+
+// The lock-free alternative to TokenBucket's synchronized consume, for BucketStoreBenchmark. One bandwidth, kept as
+// a single long ("GCRA"): the time at which the bucket would be full again. Taking a token moves that time forward
+// by one token's worth; the bucket is empty when it is a whole period ahead. One compareAndSet, no lock, no object.
+
+final class CasTokenBucket implements RateLimitBucket {
+
+    private static final AtomicLongFieldUpdater<CasTokenBucket> FULL_AT =
+            AtomicLongFieldUpdater.newUpdater(CasTokenBucket.class, "fullAtNanos");
+
+    private final long nanosPerToken;
+    private final long periodNanos;
+    private final LongSupplier clock;
+    private volatile long fullAtNanos;
+
+    CasTokenBucket(long capacity, long periodNanos, LongSupplier clock) {
+        this.nanosPerToken = Math.max(1, periodNanos / capacity);
+        this.periodNanos = nanosPerToken * capacity;
+        this.clock = clock;
+        this.fullAtNanos = clock.getAsLong(); // Full now
+    }
+
+    @Override
+    public long consume(long count) {
+        while (true) {
+            long now = clock.getAsLong();
+            long fullAt = fullAtNanos;
+            long next = Math.max(fullAt, now) + count * nanosPerToken;
+            long ahead = next - now;
+            if (ahead > periodNanos) {
+                return -(ahead - periodNanos); // Refused: wait until enough of it has passed
+            }
+            if (FULL_AT.compareAndSet(this, fullAt, next)) {
+                return (periodNanos - ahead) / nanosPerToken;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.rate_limiter;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Which user each benchmark request comes from. Keys and the order they are used in are made before measuring,
+// so the benchmarks measure the limiter, not String concatenation or a random number generator.
+//   hot:     every request from the same user (every thread fights over one bucket)
+//   uniform: users picked at random, each as likely as the other
+//   zipf:    a few users send most requests (user k is 1/k as likely as user 1), like real API traffic
+
+final class UserKeys {
+
+    static final int SEQUENCE_LENGTH = 1 << 20;
+
+    private UserKeys() {
+    }
+
+    static String[] keys(int users) {
+        String[] keys = new String[users];
+        for (int i = 0; i < users; i++) {
+            keys[i] = "user-" + i;
+        }
+        return keys;
+    }
+
+    // SEQUENCE_LENGTH indexes into keys(users), drawn with this thread's seed
+    static int[] sequence(String distribution, int users, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] sequence = new int[SEQUENCE_LENGTH];
+        switch (distribution) {
+            case "hot" -> {
+                // All zeros: user-0
+            }
+            case "uniform" -> {
+                for (int i = 0; i < sequence.length; i++) {
+                    sequence[i] = random.nextInt(users);
+                }
+            }
+            case "zipf" -> {
+                double[] cumulative = new double[users];
+                double sum = 0;
+                for (int k = 0; k < users; k++) {
+                    sum += 1.0 / (k + 1);
+                    cumulative[k] = sum;
+                }
+                for (int i = 0; i < sequence.length; i++) {
+                    int k = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                    sequence[i] = Math.min(users - 1, k >= 0 ? k : -k - 1);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown distribution " + distribution);
+        }
+        return sequence;
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.rate_limiter;
 
-import io.github.bucket4j.Bucket;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader; // Import this!
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
+// Rate limiting is no longer done here: RateLimitFilter applies the policy of each path (rate-limit.policies)
+// before the request gets this far. A request that reaches a method below is already allowed.
+
 @RestController
 public class ApiController {
 
@@ -18,18 +21,17 @@ public class ApiController {
 
     @GetMapping("/api/public")
     public ResponseEntity<String> publicApi(@RequestHeader(value = "X-User-ID", defaultValue = "anonymous") String userId) {
-        
-        // 1. Get the bucket for this specific user
-        Bucket bucket = rateLimiterService.resolveBucket(userId);
-
-        // 2. Try to take 1 token
-        if (bucket.tryConsume(1)) {
-            // Success: They have tokens left
-            return ResponseEntity.ok("✅ Success! Request processed for user: " + userId);
-        } else {
-            // Fail: Bucket is empty
-            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                    .body("⛔ Too Many Requests! Please wait.");
-        }
+        return ResponseEntity.ok("✅ Success! Request processed for user: " + userId);
+    }
+
+    @GetMapping("/api/search")
+    public ResponseEntity<String> search(@RequestHeader(value = "X-User-ID", defaultValue = "anonymous") String userId) {
+        return ResponseEntity.ok("✅ Search results for user: " + userId);
+    }
+
+    // Per policy: how many buckets are held, and how many were dropped for being idle (and full) or to stay under the cap
+    @GetMapping("/api/limiter/stats")
+    public List<RateLimiterService.Stats> limiterStats() {
+        return rateLimiterService.stats();
     }
-}
\ No newline at end of file
+}
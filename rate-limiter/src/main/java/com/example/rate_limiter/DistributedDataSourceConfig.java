@@ -0,0 +1,25 @@
+package com.example.rate_limiter;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// The DataSource exists only for JdbcBucketStore. DataSourceAutoConfiguration is excluded (RateLimiterApplication),
+// so a node in local mode starts no Hikari pool and no embedded H2. In distributed mode this builds the same pool
+// from the usual spring.datasource.* properties; JdbcTemplate and the transaction manager are then auto-configured.
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "rate-limit.distributed.enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DistributedDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
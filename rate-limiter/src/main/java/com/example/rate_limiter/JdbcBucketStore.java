@@ -0,0 +1,139 @@
+package com.example.rate_limiter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// SharedBucketStore on any JDBC database; locally an embedded H2 that several JVMs can share
+// (spring.datasource.url=jdbc:h2:file:/tmp/ratelimit;AUTO_SERVER=TRUE).
+//   1. rate_limit_bucket has one row per (policy, user, bandwidth): tokens left and when they were last refilled
+//   2. acquire = one transaction: SELECT ... FOR UPDATE locks the user's rows, the refill and the take are computed
+//      here, then written back. Two nodes taking from the same bucket queue on the row lock, never overspend it.
+//   3. Time is wall-clock time (every node must agree on it), not System.nanoTime
+//   4. Rows of buckets that are full again are deleted by purgeIdle: a missing row means a full bucket
+
+@Component
+@ConditionalOnProperty(name = "rate-limit.distributed.enabled", havingValue = "true")
+public class JdbcBucketStore implements SharedBucketStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LongSupplier wallClockNanos;
+
+    @Autowired
+    public JdbcBucketStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this(jdbcTemplate, transactionManager, () -> System.currentTimeMillis() * 1_000_000);
+    }
+
+    // Tests move the clock themselves
+    JdbcBucketStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, LongSupplier wallClockNanos) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.wallClockNanos = wallClockNanos;
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS rate_limit_bucket ("
+                + "policy VARCHAR(64) NOT NULL, "
+                + "user_id VARCHAR(64) NOT NULL, "
+                + "bandwidth INT NOT NULL, "
+                + "tokens DOUBLE PRECISION NOT NULL, "
+                + "refilled_at BIGINT NOT NULL, "
+                + "PRIMARY KEY (policy, user_id, bandwidth))");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_bucket_idle ON rate_limit_bucket(policy, refilled_at)");
+    }
+
+    @Override
+    public Grant acquire(String policy, String userId, TokenBucket.Limit limit, long requested) {
+        try {
+            return transactionTemplate.execute(status -> take(policy, userId, limit, requested));
+        } catch (DuplicateKeyException e) {
+            // Another node created this user's bucket at the same moment: it exists now, lock it like any other
+            return transactionTemplate.execute(status -> take(policy, userId, limit, requested));
+        }
+    }
+
+    private Grant take(String policy, String userId, TokenBucket.Limit limit, long requested) {
+        long now = wallClockNanos.getAsLong();
+        double[] tokens = current(policy, userId, limit, now);
+        boolean exists = tokens != null;
+        if (!exists) {
+            tokens = full(limit); // A new user starts with a full bucket
+        }
+
+        long granted = requested;
+        for (double t : tokens) {
+            granted = Math.min(granted, (long) t);
+        }
+        if (granted <= 0) {
+            long waitNanos = 0;
+            for (int i = 0; i < tokens.length; i++) {
+                waitNanos = Math.max(waitNanos, (long) Math.ceil((1 - tokens[i]) / limit.tokensPerNano[i]));
+            }
+            return new Grant(0, 0, Math.max(1, waitNanos));
+        }
+
+        long remaining = Long.MAX_VALUE;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] -= granted;
+            remaining = Math.min(remaining, (long) tokens[i]);
+            if (exists) {
+                jdbcTemplate.update("UPDATE rate_limit_bucket SET tokens = ?, refilled_at = ? "
+                        + "WHERE policy = ? AND user_id = ? AND bandwidth = ?", tokens[i], now, policy, userId, i);
+            } else {
+                jdbcTemplate.update("INSERT INTO rate_limit_bucket (policy, user_id, bandwidth, tokens, refilled_at) "
+                        + "VALUES (?, ?, ?, ?, ?)", policy, userId, i, tokens[i], now);
+            }
+        }
+        return new Grant(granted, remaining, 0);
+    }
+
+    // The user's tokens refilled up to now (rows locked until the transaction ends), null if there is no bucket yet
+    private double[] current(String policy, String userId, TokenBucket.Limit limit, long now) {
+        List<double[]> rows = jdbcTemplate.query("SELECT bandwidth, tokens, refilled_at FROM rate_limit_bucket "
+                        + "WHERE policy = ? AND user_id = ? ORDER BY bandwidth FOR UPDATE",
+                (rs, i) -> new double[] {rs.getInt(1), rs.getDouble(2), rs.getLong(3)}, policy, userId);
+        if (rows.size() != limit.capacity.length) {
+            if (!rows.isEmpty()) {
+                // The policy's bandwidths changed since this bucket was written: start it again, full
+                jdbcTemplate.update("DELETE FROM rate_limit_bucket WHERE policy = ? AND user_id = ?", policy, userId);
+            }
+            return null;
+        }
+        double[] tokens = new double[rows.size()];
+        for (double[] row : rows) {
+            int i = (int) row[0];
+            long elapsed = Math.max(0, now - (long) row[2]);
+            tokens[i] = Math.min(limit.capacity[i], row[1] + elapsed * limit.tokensPerNano[i]);
+        }
+        return tokens;
+    }
+
+    private static double[] full(TokenBucket.Limit limit) {
+        double[] tokens = new double[limit.capacity.length];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = limit.capacity[i];
+        }
+        return tokens;
+    }
+
+    @Override
+    public void release(String policy, String userId, TokenBucket.Limit limit, long tokens) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < limit.capacity.length; i++) {
+                jdbcTemplate.update("UPDATE rate_limit_bucket SET tokens = LEAST(?, tokens + ?) "
+                        + "WHERE policy = ? AND user_id = ? AND bandwidth = ?", limit.capacity[i], tokens, policy, userId, i);
+            }
+        });
+    }
+
+    @Override
+    public long purgeIdle(String policy, TokenBucket.Limit limit) {
+        long fullAgainBefore = wallClockNanos.getAsLong() - limit.timeToFull().toNanos();
+        return jdbcTemplate.update("DELETE FROM rate_limit_bucket WHERE policy = ? AND refilled_at < ?", policy, fullAgainBefore);
+    }
+}
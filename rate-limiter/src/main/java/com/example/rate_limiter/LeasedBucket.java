@@ -0,0 +1,66 @@
+package com.example.rate_limiter;
+
+// A user's bucket in distributed mode. Asking the shared store for every request would cost a round trip per
+// request, so this node LEASES a few tokens at a time and spends them locally:
+//   1. leased > 0: allowed with no round trip (the tokens already left the shared bucket, nobody else can spend them)
+//   2. leased = 0: one acquire() for up to lease-size tokens
+//   3. refused: the store said when the next token comes; until then this node refuses locally, so a client
+//      hammering a limit it has hit does not hammer the store as well
+//   4. unused tokens go back to the shared bucket when this bucket expires (lease-ttl without requests)
+// lease-size 1 is exact (every request asks the store). Larger leases mean fewer round trips, but tokens leased by
+// one node can sit unused while another node refuses the same user (until they are given back).
+
+final class LeasedBucket implements RateLimitBucket {
+
+    private final RateLimitPolicy policy;
+    private final String userId;
+    private long leased;
+    private long sharedRemaining; // Left in the shared bucket at the last acquire: X-RateLimit-Remaining is approximate
+    private long refusedUntilNanos;
+    private boolean refusing;
+
+    LeasedBucket(RateLimitPolicy policy, String userId) {
+        this.policy = policy;
+        this.userId = userId;
+    }
+
+    @Override
+    public synchronized long consume(long count) {
+        if (leased >= count) {
+            leased -= count;
+            policy.leaseHits.increment();
+            return leased + sharedRemaining;
+        }
+
+        long now = policy.clock().getAsLong();
+        if (refusing && now - refusedUntilNanos < 0) {
+            return -(refusedUntilNanos - now);
+        }
+        refusing = false;
+
+        SharedBucketStore.Grant grant = policy.acquire(userId, Math.max(policy.leaseSize(), count - leased));
+        if (grant == null) {
+            return 0; // The store is unreachable: allow (fail open) rather than take the API down with it
+        }
+        leased += grant.granted();
+        sharedRemaining = grant.remaining();
+        if (leased >= count) {
+            leased -= count;
+            return leased + sharedRemaining;
+        }
+        refusing = true;
+        refusedUntilNanos = now + grant.waitNanos();
+        return -grant.waitNanos();
+    }
+
+    // Empties the lease (the bucket is leaving this node); the caller gives the tokens back to the store
+    synchronized long takeLease() {
+        long tokens = leased;
+        leased = 0;
+        return tokens;
+    }
+
+    String userId() {
+        return userId;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.rate_limiter;
+
+// What RateLimitFilter needs from a user's bucket, whether it lives on this node (TokenBucket) or is shared by
+// the whole cluster (LeasedBucket, see SharedBucketStore)
+public interface RateLimitBucket {
+
+    // Takes count tokens. Returns what is left, or, when refused, minus the nanoseconds until the request would be
+    // allowed. Allowed requests create no objects.
+    long consume(long count);
+
+    default boolean tryConsume(long count) {
+        return consume(count) >= 0;
+    }
+}
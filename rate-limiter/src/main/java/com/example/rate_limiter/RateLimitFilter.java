@@ -0,0 +1,72 @@
+package com.example.rate_limiter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+
+// Runs before the controller: a request over its policy's limit is answered with 429 here and never reaches
+// Spring MVC. Controllers no longer limit anything themselves, a new endpoint only needs a policy in the properties.
+//   allowed -> X-RateLimit-Remaining: tokens left (tightest bandwidth)
+//   refused -> 429, Retry-After: seconds until the next token, X-RateLimit-Remaining: 0
+// Policies match the path the way Spring MVC routes it: decoded, ";params" removed.
+// The raw request URI would let /api/%70ublic or /api/public;x=1 reach /api/public with nobody counting.
+
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String USER_HEADER = "X-User-ID";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private static final UrlPathHelper PATHS = new UrlPathHelper(); // Defaults: decode, drop ";" content
+
+    private final RateLimiterService rateLimiterService;
+
+    public RateLimitFilter(RateLimiterService rateLimiterService) {
+        this.rateLimiterService = rateLimiterService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String userId = request.getHeader(USER_HEADER);
+        if (userId == null) {
+            userId = "anonymous";
+        }
+
+        RateLimitPolicy policy;
+        RateLimitBucket bucket;
+        try {
+            policy = rateLimiterService.policyFor(PATHS.getPathWithinApplication(request), userId);
+            if (policy == null) {
+                chain.doFilter(request, response); // Not a limited path
+                return;
+            }
+            bucket = rateLimiterService.resolveBucket(policy, userId);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        }
+
+        long remaining = bucket.consume(1);
+        if (remaining >= 0) {
+            response.setHeader(REMAINING_HEADER, policy.remainingHeader(remaining));
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (-remaining + 999_999_999) / 1_000_000_000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(REMAINING_HEADER, "0");
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("⛔ Too Many Requests! Please wait.");
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.rate_limiter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// One configured policy, ready to use: its path/tier match, its shared limit and its own bounded bucket store
+// (see RateLimiterService for why it is bounded). Everything a request needs is prepared here once, so checking
+// a request that is allowed creates no objects: no pattern matcher, no key string, no header string.
+// Local mode keeps a TokenBucket per user; distributed mode keeps a LeasedBucket per user in front of the
+// SharedBucketStore, and gives the unused part of a lease back when the bucket leaves this node.
+
+public final class RateLimitPolicy {
+
+    private final String name;
+    private final String exactPath;  // "/api/public"
+    private final String pathPrefix; // "/api/**" -> "/api"
+    private final String tier;       // null: every tier
+    private final TokenBucket.Limit limit;
+    private final long maxBuckets;
+    private final Cache<String, RateLimitBucket> buckets;
+    private final Function<String, RateLimitBucket> newBucket;
+    private final String[] remainingText;
+    final LongAdder expired = new LongAdder();
+    final LongAdder evictedForSize = new LongAdder();
+
+    // Distributed mode only
+    private final SharedBucketStore store;
+    private final long leaseSize;
+    final LongAdder leaseHits = new LongAdder();
+    final LongAdder storeCalls = new LongAdder();
+    final LongAdder storeErrors = new LongAdder();
+
+    RateLimitPolicy(RateLimitProperties.Policy policy, long maxBuckets, LongSupplier clock,
+                    RateLimitProperties.Distributed distributed, SharedBucketStore store, Executor leaseReturns) {
+        if (policy.path() == null || !policy.path().startsWith("/")) {
+            throw new IllegalArgumentException("Rate limit policy " + policy.name() + " needs a path starting with /");
+        }
+        this.name = policy.name() == null ? policy.path() : policy.name();
+        if (policy.path().endsWith("/**")) {
+            this.exactPath = null;
+            this.pathPrefix = policy.path().substring(0, policy.path().length() - 3);
+        } else {
+            this.exactPath = policy.path();
+            this.pathPrefix = null;
+        }
+        this.tier = policy.tier() == null || policy.tier().isBlank() ? null : policy.tier();
+        this.limit = new TokenBucket.Limit(policy.limits(), clock);
+        this.maxBuckets = maxBuckets;
+        this.store = store;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .ticker(clock::getAsLong)
+                .executor(Runnable::run); // Evict on the request thread: the store can never run ahead of its cleanup
+        if (store == null) {
+            this.leaseSize = 0;
+            this.newBucket = userId -> new TokenBucket(limit);
+            this.buckets = builder
+                    .expireAfterAccess(limit.timeToFull())
+                    .evictionListener((String userId, RateLimitBucket bucket, RemovalCause cause) -> countEviction(cause))
+                    .build();
+        } else {
+            // A lease is never a big share of the limit: with 10 per minute every request asks the store
+            this.leaseSize = Math.max(1, Math.min(distributed.leaseSize(),
+                    (long) (limit.smallestCapacity() * distributed.maxLeaseFraction())));
+            this.newBucket = userId -> new LeasedBucket(this, userId);
+            this.buckets = builder
+                    .expireAfterAccess(distributed.leaseTtl())
+                    .removalListener((String userId, RateLimitBucket bucket, RemovalCause cause) -> {
+                        if (cause.wasEvicted()) {
+                            countEviction(cause);
+                        }
+                        long unused = ((LeasedBucket) bucket).takeLease();
+                        if (unused > 0) {
+                            leaseReturns.execute(() -> giveBack(userId, unused));
+                        }
+                    })
+                    .build();
+        }
+
+        // X-RateLimit-Remaining can only be 0..smallest capacity: every value is made once, here
+        this.remainingText = new String[(int) Math.min(limit.smallestCapacity(), 10_000) + 1];
+        for (int i = 0; i < remainingText.length; i++) {
+            remainingText[i] = Integer.toString(i);
+        }
+    }
+
+    private void countEviction(RemovalCause cause) {
+        (cause == RemovalCause.SIZE ? evictedForSize : expired).increment();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    boolean matches(String path, String clientTier) {
+        if (tier != null && !tier.equals(clientTier)) {
+            return false;
+        }
+        if (exactPath != null) {
+            return exactPath.equals(path);
+        }
+        // "/api/**" covers "/api" and "/api/anything", not "/apiary"
+        return path.startsWith(pathPrefix)
+                && (path.length() == pathPrefix.length() || path.charAt(pathPrefix.length()) == '/');
+    }
+
+    RateLimitBucket bucket(String userId) {
+        return buckets.get(userId, newBucket);
+    }
+
+    String remainingHeader(long remaining) {
+        return remaining < remainingText.length ? remainingText[(int) remaining] : Long.toString(remaining);
+    }
+
+    // --- distributed mode (called by LeasedBucket) ---
+
+    LongSupplier clock() {
+        return limit.clock;
+    }
+
+    long leaseSize() {
+        return leaseSize;
+    }
+
+    // null when the store cannot be reached
+    SharedBucketStore.Grant acquire(String userId, long tokens) {
+        storeCalls.increment();
+        try {
+            return store.acquire(name, userId, limit, tokens);
+        } catch (RuntimeException e) {
+            storeErrors.increment();
+            System.out.println("Rate limit store unreachable (" + e.getMessage() + "), allowing the request");
+            return null;
+        }
+    }
+
+    private void giveBack(String userId, long tokens) {
+        storeCalls.increment();
+        try {
+            store.release(name, userId, limit, tokens);
+        } catch (RuntimeException e) {
+            storeErrors.increment(); // Lost tokens: the shared bucket refills them anyway
+        }
+    }
+
+    // Every bucket leaves this node (shutdown): all unused leases go back
+    void returnLeases() {
+        buckets.invalidateAll();
+        buckets.cleanUp();
+    }
+
+    long purgeIdle() {
+        return store == null ? 0 : store.purgeIdle(name, limit);
+    }
+
+    void cleanUp() {
+        buckets.cleanUp();
+    }
+
+    RateLimiterService.Stats stats() {
+        buckets.cleanUp();
+        return new RateLimiterService.Stats(name, buckets.estimatedSize(), maxBuckets, expired.sum(), evictedForSize.sum(),
+                leaseHits.sum(), storeCalls.sum(), storeErrors.sum());
+    }
+
+    long size() {
+        return buckets.estimatedSize();
+    }
+}
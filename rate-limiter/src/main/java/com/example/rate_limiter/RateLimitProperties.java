@@ -0,0 +1,53 @@
+package com.example.rate_limiter;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+// rate-limit.* in application.properties. Policies are checked in order, the first one matching the path AND the
+// client's tier applies (no tier = every tier). Each limit is a bandwidth of its own; a request needs a token from
+// all of them, so "20 per second" + "1000 per hour" allows short bursts but not a whole hour at burst speed.
+//
+//   rate-limit.policies[0].path=/api/**        exact path, or a prefix ending in /**
+//   rate-limit.policies[0].tier=pro
+//   rate-limit.policies[0].limits[0].capacity=20
+//   rate-limit.policies[0].limits[0].period=1s
+//   rate-limit.client-tiers.alice=pro          everyone else has default-tier
+//
+// rate-limit.distributed.*: one limit for the whole cluster instead of one per node (see LeasedBucket)
+
+@ConfigurationProperties("rate-limit")
+public record RateLimitProperties(@DefaultValue("100000") long maxBuckets,
+                                  @DefaultValue("64") int maxKeyLength,
+                                  @DefaultValue("free") String defaultTier,
+                                  Map<String, String> clientTiers,
+                                  List<Policy> policies,
+                                  @DefaultValue Distributed distributed) {
+
+    public RateLimitProperties {
+        clientTiers = clientTiers == null ? Map.of() : Map.copyOf(clientTiers);
+        policies = policies == null ? List.of() : List.copyOf(policies);
+        distributed = distributed == null ? Distributed.disabled() : distributed;
+    }
+
+    public record Policy(String name, String path, String tier, List<Bandwidth> limits) {}
+
+    // capacity tokens, refilled continuously over period
+    public record Bandwidth(long capacity, Duration period) {}
+
+    // leaseSize: tokens a node takes from the shared store per round trip (1 = exact, a round trip per request),
+    //   but never more than maxLeaseFraction of the policy's smallest capacity
+    // leaseTtl: a lease nobody used for this long goes back to the shared store
+    public record Distributed(@DefaultValue("false") boolean enabled,
+                              @DefaultValue("10") long leaseSize,
+                              @DefaultValue("0.1") double maxLeaseFraction,
+                              @DefaultValue("2s") Duration leaseTtl) {
+
+        public static Distributed disabled() {
+            return new Distributed(false, 1, 0, Duration.ofSeconds(1));
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.example.rate_limiter;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
 
-@SpringBootApplication
+// No DataSource in the default local mode: DistributedDataSourceConfig creates it for distributed mode only
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class RateLimiterApplication {
 
 	public static void main(String[] args) {
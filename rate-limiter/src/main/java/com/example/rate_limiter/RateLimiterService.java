@@ -1,32 +1,149 @@
 package com.example.rate_limiter;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
-// This class manages the "Buckets". It creates a new bucket for every new user (simulated by IP address) and defines the rules.
+// This class manages the "Buckets": one store per policy (rate-limit.policies, see RateLimitProperties), and in each
+// store a bucket per user. RateLimitFilter asks it which policy applies to a request, then for that user's bucket.
+// The old ConcurrentHashMap kept a bucket for every X-User-ID ever seen: send a new ID per request and the heap grows
+// until the server dies. Every store is now bounded:
+//   1. IDLE EXPIRY: a bucket nobody used for capacity / refill rate (e.g. 1 minute) is full again, exactly like a new
+//      one, so dropping it changes nothing for its user
+//   2. SIZE CAP: at most rate-limit.max-buckets entries per policy. Past that the least valuable bucket is evicted
+//      (Caffeine's W-TinyLFU keeps frequently seen users, so a flood of one-shot IDs evicts mostly itself)
+//   3. KEY LENGTH CAP: a user ID is part of every entry, so a 8KB header cannot become a 8KB key
+//   4. COMPACT BUCKETS: see TokenBucket
+// With rate-limit.distributed.enabled=true the limit is for the whole cluster: buckets live in a SharedBucketStore
+// and this node only keeps small leases of tokens (LeasedBucket). A scheduler returns idle leases and purges the
+// store's idle buckets.
 
 @Service
-public class RateLimiterService {
+public class RateLimiterService implements MeterBinder, DisposableBean {
 
-    // Storage for buckets: Key = User ID (or IP), Value = Their Bucket
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
+    // leaseHits / storeCalls / storeErrors stay 0 in local mode
+    public record Stats(String policy, long buckets, long maxBuckets, long expired, long evictedForSize,
+                        long leaseHits, long storeCalls, long storeErrors) {}
 
-    public Bucket resolveBucket(String userId) {
-        return cache.computeIfAbsent(userId, this::createNewBucket);
+    private final RateLimitPolicy[] policies; // An array: matching a request does not even create an iterator
+    private final RateLimitProperties properties;
+    private final ScheduledExecutorService scheduler; // Distributed mode only
+
+    @Autowired
+    public RateLimiterService(RateLimitProperties properties, ObjectProvider<SharedBucketStore> store) {
+        this(properties, System::nanoTime, properties.distributed().enabled() ? store.getObject() : null);
+    }
+
+    // Tests move the clock themselves
+    RateLimiterService(RateLimitProperties properties, LongSupplier clock) {
+        this(properties, clock, null);
+    }
+
+    RateLimiterService(RateLimitProperties properties, LongSupplier clock, SharedBucketStore store) {
+        this.properties = properties;
+        this.scheduler = store == null ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-limit-leases");
+            t.setDaemon(true);
+            return t;
+        });
+        this.policies = new RateLimitPolicy[properties.policies().size()];
+        for (int i = 0; i < policies.length; i++) {
+            policies[i] = new RateLimitPolicy(properties.policies().get(i), properties.maxBuckets(), clock,
+                    properties.distributed(), store, scheduler);
+        }
+        if (scheduler != null) {
+            // Expiry only happens when the cache is touched: look at it regularly so idle leases do go back
+            long every = Math.max(100, properties.distributed().leaseTtl().toMillis() / 2);
+            scheduler.scheduleWithFixedDelay(this::maintain, every, every, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void maintain() {
+        for (RateLimitPolicy policy : policies) {
+            try {
+                policy.cleanUp();
+                policy.purgeIdle();
+            } catch (RuntimeException e) {
+                System.out.println("Rate limit maintenance failed for " + policy.name() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // The first policy for this path and this user's tier, null if the path is not limited
+    public RateLimitPolicy policyFor(String path, String userId) {
+        checkUserId(userId);
+        String tier = properties.clientTiers().getOrDefault(userId, properties.defaultTier());
+        for (RateLimitPolicy policy : policies) {
+            if (policy.matches(path, tier)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    public RateLimitBucket resolveBucket(RateLimitPolicy policy, String userId) {
+        checkUserId(userId);
+        return policy.bucket(userId);
+    }
+
+    private void checkUserId(String userId) {
+        if (userId.length() > properties.maxKeyLength()) {
+            throw new IllegalArgumentException("X-User-ID must be at most " + properties.maxKeyLength() + " characters");
+        }
+    }
+
+    public List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>(policies.length);
+        for (RateLimitPolicy policy : policies) {
+            stats.add(policy.stats());
+        }
+        return stats;
+    }
+
+    // rate.limit.buckets (entries), rate.limit.evictions{cause=expired|size} and, in distributed mode,
+    // rate.limit.store.calls / rate.limit.lease.hits / rate.limit.store.errors, per policy, on /actuator/metrics
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (RateLimitPolicy policy : policies) {
+            Gauge.builder("rate.limit.buckets", policy, RateLimitPolicy::size).tag("policy", policy.name()).register(registry);
+            FunctionCounter.builder("rate.limit.evictions", policy.expired, LongAdder::sum)
+                    .tag("policy", policy.name()).tag("cause", "expired").register(registry);
+            FunctionCounter.builder("rate.limit.evictions", policy.evictedForSize, LongAdder::sum)
+                    .tag("policy", policy.name()).tag("cause", "size").register(registry);
+            if (scheduler != null) {
+                FunctionCounter.builder("rate.limit.store.calls", policy.storeCalls, LongAdder::sum)
+                        .tag("policy", policy.name()).register(registry);
+                FunctionCounter.builder("rate.limit.lease.hits", policy.leaseHits, LongAdder::sum)
+                        .tag("policy", policy.name()).register(registry);
+                FunctionCounter.builder("rate.limit.store.errors", policy.storeErrors, LongAdder::sum)
+                        .tag("policy", policy.name()).register(registry);
+            }
+        }
     }
 
-    private Bucket createNewBucket(String userId) {
-        // Define the limit: 10 tokens, refilled every 1 minute
-        Bandwidth limit = Bandwidth.classic(10, Refill.greedy(10, Duration.ofMinutes(1)));
-        
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
+    // Leases this node still holds go back to the shared store, so the other nodes can use them
+    @Override
+    public void destroy() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        for (RateLimitPolicy policy : policies) {
+            policy.returnLeases();
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.example.rate_limiter;
+
+// Bucket state shared by every rate-limiter node (rate-limit.distributed.enabled=true). With one in-memory map per
+// node, N nodes behind a load balancer allowed N x the limit; with a shared store they allow the limit.
+// Implementations must make acquire and release atomic per (policy, user) across nodes. JdbcBucketStore is the
+// embedded/JDBC one; another backend (e.g. Redis) only has to implement these three calls.
+public interface SharedBucketStore {
+
+    // granted: tokens taken (0..requested). remaining: tokens left in the tightest bandwidth after that.
+    // waitNanos: when nothing could be granted, time until the next token.
+    record Grant(long granted, long remaining, long waitNanos) {}
+
+    // Refills the shared bucket up to now, then takes up to `requested` tokens from every bandwidth
+    Grant acquire(String policy, String userId, TokenBucket.Limit limit, long requested);
+
+    // Gives back tokens a node leased but did not use
+    void release(String policy, String userId, TokenBucket.Limit limit, long tokens);
+
+    // Forgets buckets nobody used for longer than it takes them to be full again (like the local idle expiry)
+    long purgeIdle(String policy, TokenBucket.Limit limit);
+}
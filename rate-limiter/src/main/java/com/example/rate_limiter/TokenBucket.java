@@ -0,0 +1,112 @@
+package com.example.rate_limiter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// A token bucket reduced to what has to be kept per user: the tokens left (one count per bandwidth) and when they
+// were last counted. Bucket4j's Bucket.builder() made a configuration, a state object and a lock-free wrapper for
+// EVERY user; here the limit (bandwidths, clock) is one shared object and a one-bandwidth bucket is ~56 bytes.
+// Tokens refill continuously ("greedy"): 10 per minute means one every 6 seconds, never 10 at once on the minute.
+
+public final class TokenBucket implements RateLimitBucket {
+
+    // Shared by every bucket of the same policy
+    public static final class Limit {
+        final long[] capacity;
+        final double[] tokensPerNano;
+        final LongSupplier clock;
+
+        public Limit(List<RateLimitProperties.Bandwidth> bandwidths, LongSupplier clock) {
+            if (bandwidths == null || bandwidths.isEmpty()) {
+                throw new IllegalArgumentException("A limit needs at least one bandwidth");
+            }
+            this.capacity = new long[bandwidths.size()];
+            this.tokensPerNano = new double[bandwidths.size()];
+            for (int i = 0; i < bandwidths.size(); i++) {
+                RateLimitProperties.Bandwidth bandwidth = bandwidths.get(i);
+                if (bandwidth.capacity() <= 0 || bandwidth.period() == null
+                        || bandwidth.period().isNegative() || bandwidth.period().isZero()) {
+                    throw new IllegalArgumentException("A bandwidth needs a positive capacity and period");
+                }
+                capacity[i] = bandwidth.capacity();
+                tokensPerNano[i] = (double) bandwidth.capacity() / bandwidth.period().toNanos();
+            }
+            this.clock = clock;
+        }
+
+        // After this long without requests an empty bucket is full again, i.e. no different from a new one
+        public Duration timeToFull() {
+            long nanos = 0;
+            for (int i = 0; i < capacity.length; i++) {
+                nanos = Math.max(nanos, (long) Math.ceil(capacity[i] / tokensPerNano[i]));
+            }
+            return Duration.ofNanos(nanos);
+        }
+
+        // The most tokens a bucket can ever report as remaining
+        public long smallestCapacity() {
+            long smallest = Long.MAX_VALUE;
+            for (long c : capacity) {
+                smallest = Math.min(smallest, c);
+            }
+            return smallest;
+        }
+    }
+
+    private final Limit limit;
+    private final double[] tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(Limit limit) {
+        this.limit = limit;
+        this.tokens = new double[limit.capacity.length];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = limit.capacity[i]; // A new user starts with a full bucket
+        }
+        this.lastRefillNanos = limit.clock.getAsLong();
+    }
+
+    // Takes count tokens from every bandwidth, or from none of them. Returns what is left (the tightest bandwidth),
+    // or, when refused, minus the nanoseconds until the request would be allowed. No object is created either way.
+    @Override
+    public synchronized long consume(long count) {
+        refill();
+        long waitNanos = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i] < count) {
+                waitNanos = Math.max(waitNanos, (long) Math.ceil((count - tokens[i]) / limit.tokensPerNano[i]));
+            }
+        }
+        if (waitNanos > 0) {
+            return -waitNanos;
+        }
+        double remaining = Double.MAX_VALUE;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] -= count;
+            remaining = Math.min(remaining, tokens[i]);
+        }
+        return (long) remaining;
+    }
+
+    public synchronized long getAvailableTokens() {
+        refill();
+        double available = Double.MAX_VALUE;
+        for (double t : tokens) {
+            available = Math.min(available, t);
+        }
+        return (long) available;
+    }
+
+    // Adds what accrued since the last call, capped at each capacity
+    private void refill() {
+        long now = limit.clock.getAsLong();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = Math.min(limit.capacity[i], tokens[i] + elapsed * limit.tokensPerNano[i]);
+            }
+            lastRefillNanos = now;
+        }
+    }
+}
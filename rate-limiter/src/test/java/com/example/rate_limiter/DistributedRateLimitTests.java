@@ -0,0 +1,140 @@
+package com.example.rate_limiter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two RateLimiterService "nodes" sharing one database, like two instances behind a load balancer
+class DistributedRateLimitTests {
+
+    private final AtomicLong now = new AtomicLong();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+    private final SharedBucketStore store = new JdbcBucketStore(jdbcTemplate,
+            new DataSourceTransactionManager(jdbcTemplate.getDataSource()), now::get);
+    private final List<RateLimiterService> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stop() throws Exception {
+        for (RateLimiterService node : nodes) {
+            node.destroy();
+        }
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private RateLimiterService node(SharedBucketStore store, long leaseSize, long capacity, Duration period) {
+        RateLimitProperties.Policy policy = new RateLimitProperties.Policy("public", "/api/public", null,
+                List.of(new RateLimitProperties.Bandwidth(capacity, period)));
+        RateLimitProperties properties = new RateLimitProperties(1000, 64, "free", Map.of(), List.of(policy),
+                new RateLimitProperties.Distributed(true, leaseSize, 1.0, Duration.ofSeconds(2)));
+        RateLimiterService node = new RateLimiterService(properties, now::get, store);
+        nodes.add(node);
+        return node;
+    }
+
+    private static boolean request(RateLimiterService node, String userId) {
+        return node.resolveBucket(node.policyFor("/api/public", userId), userId).tryConsume(1);
+    }
+
+    // Requests alternate between the nodes, as a round-robin load balancer would send them
+    private static int allowed(RateLimiterService a, RateLimiterService b, String userId, int requests) {
+        int allowed = 0;
+        for (int i = 0; i < requests; i++) {
+            if (request(i % 2 == 0 ? a : b, userId)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Test
+    void twoNodesShareOneLimit() {
+        RateLimiterService a = node(store, 1, 10, Duration.ofMinutes(1));
+        RateLimiterService b = node(store, 1, 10, Duration.ofMinutes(1));
+
+        assertEquals(10, allowed(a, b, "Hacker", 20)); // Not 10 per node
+
+        now.addAndGet(Duration.ofSeconds(6).toNanos()); // One token refilled, for the whole cluster
+        assertEquals(1, allowed(a, b, "Hacker", 4));
+    }
+
+    @Test
+    void leasesSaveRoundTripsButNeverExceedTheLimit() {
+        RateLimiterService a = node(store, 10, 100, Duration.ofHours(1));
+        RateLimiterService b = node(store, 10, 100, Duration.ofHours(1));
+
+        assertEquals(100, allowed(a, b, "bob", 300));
+
+        long storeCalls = a.stats().get(0).storeCalls() + b.stats().get(0).storeCalls();
+        long leaseHits = a.stats().get(0).leaseHits() + b.stats().get(0).leaseHits();
+        assertEquals(90, leaseHits); // Only the first request of each lease of 10 asks the store
+        // Every refusal after that asks the store once, then is refused locally until the next token
+        assertTrue(storeCalls <= 12, "store calls: " + storeCalls);
+    }
+
+    @Test
+    void anUnusedLeaseGoesBackAfterLeaseTtl() throws Exception {
+        RateLimiterService a = node(store, 10, 100, Duration.ofHours(1));
+        RateLimiterService b = node(store, 10, 100, Duration.ofHours(1));
+
+        assertTrue(request(a, "bob")); // a leases 10, uses 1
+        for (int i = 0; i < 90; i++) {
+            assertTrue(request(b, "bob"));
+        }
+
+        now.addAndGet(Duration.ofSeconds(3).toNanos());
+        a.policyFor("/api/public", "bob").cleanUp(); // What the lease scheduler does
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sharedTokens("bob") < 9 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        for (int i = 0; i < 9; i++) {
+            assertTrue(request(b, "bob"), "request " + i);
+        }
+        assertFalse(request(b, "bob"));
+    }
+
+    private double sharedTokens(String userId) {
+        return jdbcTemplate.queryForObject("SELECT tokens FROM rate_limit_bucket WHERE user_id = ?", Double.class, userId);
+    }
+
+    @Test
+    void anUnreachableStoreFailsOpen() {
+        SharedBucketStore down = new SharedBucketStore() {
+            @Override
+            public Grant acquire(String policy, String userId, TokenBucket.Limit limit, long requested) {
+                throw new IllegalStateException("connection refused");
+            }
+
+            @Override
+            public void release(String policy, String userId, TokenBucket.Limit limit, long tokens) {
+                throw new IllegalStateException("connection refused");
+            }
+
+            @Override
+            public long purgeIdle(String policy, TokenBucket.Limit limit) {
+                return 0;
+            }
+        };
+        RateLimiterService node = node(down, 1, 10, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(request(node, "bob"));
+        }
+        assertEquals(20, node.stats().get(0).storeErrors());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.rate_limiter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Uses the policies of application.properties
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class RateLimitFilterTests {
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private HttpResponse<String> get(String path, String userId) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("X-User-ID", userId).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void tenPerMinuteThen429WithRetryAfter() throws Exception {
+        for (int i = 9; i >= 0; i--) {
+            HttpResponse<String> allowed = get("/api/public", "Hacker");
+            assertEquals(200, allowed.statusCode());
+            assertEquals(String.valueOf(i), allowed.headers().firstValue("X-RateLimit-Remaining").orElseThrow());
+        }
+
+        HttpResponse<String> refused = get("/api/public", "Hacker");
+        assertEquals(429, refused.statusCode());
+        assertEquals("0", refused.headers().firstValue("X-RateLimit-Remaining").orElseThrow());
+        assertEquals("6", refused.headers().firstValue("Retry-After").orElseThrow()); // One token every 6 seconds
+        assertTrue(refused.body().contains("Too Many Requests"));
+
+        assertEquals(200, get("/api/public", "SomeoneElse").statusCode()); // Buckets are per user
+    }
+
+    @Test
+    void encodedAndParameterisedPathsShareTheSameBucket() throws Exception {
+        // All of these reach the same controller method, so they must use up the same 10 per minute
+        String[] spellings = {"/api/public", "/api/public;x=1", "/api/%70ublic", "/api/public;jsessionid=1"};
+        int allowed = 0;
+        for (int i = 0; i < 14; i++) {
+            HttpResponse<String> response = get(spellings[i % spellings.length], "Sneaky");
+            if (response.statusCode() == 200) {
+                allowed++;
+            } else {
+                assertEquals(429, response.statusCode());
+            }
+        }
+        assertEquals(10, allowed);
+    }
+
+    @Test
+    void proClientsGetTheirOwnPolicyOnEveryApiPath() throws Exception {
+        assertEquals(5, countAllowed("/api/search", "bob", 8)); // Free tier: 5 searches per 10 seconds
+        assertEquals(8, countAllowed("/api/search", "alice", 8)); // Pro: the /api/** burst of 20 per second
+
+        HttpResponse<String> pro = get("/api/public", "alice");
+        assertTrue(Long.parseLong(pro.headers().firstValue("X-RateLimit-Remaining").orElseThrow()) >= 10); // Not the 10 per minute
+    }
+
+    @Test
+    void unlimitedPathsGetNoHeaders() throws Exception {
+        HttpResponse<String> health = get("/actuator/health", "anyone");
+        assertEquals(200, health.statusCode());
+        assertTrue(health.headers().firstValue("X-RateLimit-Remaining").isEmpty());
+    }
+
+    private int countAllowed(String path, String userId, int requests) throws Exception {
+        int allowed = 0;
+        for (int i = 0; i < requests; i++) {
+            if (get(path, userId).statusCode() == 200) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+}
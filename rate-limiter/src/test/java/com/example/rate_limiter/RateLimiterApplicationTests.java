@@ -1,13 +1,39 @@
 package com.example.rate_limiter;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 class RateLimiterApplicationTests {
 
+	@Autowired
+	ApplicationContext context;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void localModeHasNoDataSource() {
+		assertTrue(context.getBeansOfType(DataSource.class).isEmpty());
+	}
+
+	@Test
+	void distributedModeGetsItsDataSource() {
+		try (ConfigurableApplicationContext distributed = new SpringApplicationBuilder(RateLimiterApplication.class)
+				.run("--rate-limit.distributed.enabled=true", "--server.port=0")) {
+			assertEquals(1, distributed.getBeansOfType(DataSource.class).size());
+			assertEquals(1, distributed.getBeansOfType(JdbcBucketStore.class).size());
+		}
+	}
+
 }
@@ -0,0 +1,217 @@
+package com.example.rate_limiter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterServiceTests {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private static RateLimitProperties.Policy policy(String name, String path, String tier, RateLimitProperties.Bandwidth... limits) {
+        return new RateLimitProperties.Policy(name, path, tier, List.of(limits));
+    }
+
+    private static RateLimitProperties.Bandwidth per(long capacity, Duration period) {
+        return new RateLimitProperties.Bandwidth(capacity, period);
+    }
+
+    private RateLimiterService service(long maxBuckets, RateLimitProperties.Policy... policies) {
+        return new RateLimiterService(new RateLimitProperties(maxBuckets, 64, "free",
+                Map.of("alice", "pro"), List.of(policies), null), now::get);
+    }
+
+    // The original rule: 10 per minute on /api/public
+    private RateLimiterService publicApi(long maxBuckets) {
+        return service(maxBuckets, policy("public", "/api/public", null, per(10, Duration.ofMinutes(1))));
+    }
+
+    private static TokenBucket bucket(RateLimiterService service, String userId) {
+        return (TokenBucket) service.resolveBucket(service.policyFor("/api/public", userId), userId);
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void tenRequestsPerMinuteRefilledContinuously() {
+        RateLimiterService service = publicApi(1000);
+        TokenBucket bucket = bucket(service, "Hacker");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bucket.tryConsume(1));
+        }
+        assertEquals(-6_000_000_000L, bucket.consume(1)); // Refused: the next token comes in 6 seconds
+
+        advance(Duration.ofSeconds(6));
+        assertTrue(bucket.tryConsume(1));
+        assertFalse(bucket.tryConsume(1));
+
+        advance(Duration.ofHours(1)); // Never more than the capacity
+        assertEquals(10, bucket.getAvailableTokens());
+    }
+
+    @Test
+    void aRequestNeedsATokenFromEveryBandwidth() {
+        RateLimiterService service = service(1000, policy("burst", "/api/**", null,
+                per(5, Duration.ofSeconds(1)), per(8, Duration.ofMinutes(1))));
+        TokenBucket bucket = bucket(service, "bob");
+
+        assertEquals(4, bucket.consume(1)); // Tightest first: 4 left of the 5-per-second burst
+        for (int i = 0; i < 4; i++) {
+            assertTrue(bucket.tryConsume(1));
+        }
+        assertFalse(bucket.tryConsume(1)); // Burst used up
+
+        advance(Duration.ofSeconds(1)); // Burst refilled, but only 3 left of the 8 per minute
+        assertEquals(2, bucket.consume(1));
+        assertTrue(bucket.tryConsume(1));
+        assertTrue(bucket.tryConsume(1));
+        // The minute bandwidth has 8/60 of a token left: 0.87 token at 7.5s per token
+        long refused = bucket.consume(1);
+        assertTrue(refused < -6_400_000_000L && refused > -6_600_000_000L, "waits for the minute bandwidth, " + refused);
+    }
+
+    @Test
+    void firstPolicyMatchingPathAndTierWins() {
+        RateLimiterService service = service(1000,
+                policy("pro", "/api/**", "pro", per(100, Duration.ofMinutes(1))),
+                policy("search", "/api/search", null, per(5, Duration.ofMinutes(1))),
+                policy("public", "/api/public", null, per(10, Duration.ofMinutes(1))));
+
+        assertEquals("pro", service.policyFor("/api/search", "alice").name());
+        assertEquals("search", service.policyFor("/api/search", "bob").name());
+        assertEquals("public", service.policyFor("/api/public", "bob").name());
+        assertEquals("pro", service.policyFor("/api", "alice").name());
+        assertNull(service.policyFor("/apiary", "alice"));
+        assertNull(service.policyFor("/api/other", "bob"));
+    }
+
+    @Test
+    void anIdleBucketIsDroppedOnlyOnceItIsFullAgain() {
+        RateLimiterService service = publicApi(1000);
+        TokenBucket bucket = bucket(service, "Hacker");
+        bucket.tryConsume(10);
+
+        advance(Duration.ofSeconds(59));
+        assertSame(bucket, bucket(service, "Hacker")); // Not full yet: kept, and that use resets the idle time
+        assertEquals(0, service.stats().get(0).expired());
+
+        advance(Duration.ofSeconds(61));
+        assertEquals(0, service.stats().get(0).buckets());
+        assertEquals(1, service.stats().get(0).expired());
+        assertEquals(10, bucket(service, "Hacker").getAvailableTokens()); // A new bucket is no different
+    }
+
+    @Test
+    void millionsOfUniqueIdsNeverGrowTheStorePastItsCap() {
+        RateLimiterService service = publicApi(10_000);
+        bucket(service, "regular").tryConsume(1);
+
+        for (int i = 0; i < 1_000_000; i++) {
+            bucket(service, "rotating-" + i).tryConsume(1);
+            if (i % 1000 == 0) {
+                bucket(service, "regular"); // A real user, seen again and again
+            }
+        }
+
+        RateLimiterService.Stats stats = service.stats().get(0);
+        assertTrue(stats.buckets() <= 10_000, "buckets: " + stats.buckets());
+        assertTrue(stats.evictedForSize() >= 990_000);
+        assertEquals(9, bucket(service, "regular").getAvailableTokens()); // Frequently seen: never evicted
+    }
+
+    @Test
+    void rejectsOversizedUserIds() {
+        RateLimiterService service = publicApi(1000);
+        assertThrows(IllegalArgumentException.class, () -> bucket(service, "x".repeat(65)));
+        assertEquals(0, service.stats().get(0).buckets());
+    }
+
+    @Test
+    void anAllowedRequestCreatesNoObjects() {
+        RateLimiterService service = service(1000,
+                policy("pro", "/api/**", "pro", per(20, Duration.ofSeconds(1)), per(1_000_000_000, Duration.ofHours(1))),
+                policy("public", "/api/public", null, per(1_000_000_000, Duration.ofMinutes(1))));
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        long sink = 0;
+        for (int round = 0; round < 3; round++) { // The first rounds warm up (and let the JIT compile) the path
+            long before = threads.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < 100_000; i++) {
+                RateLimitPolicy policy = service.policyFor("/api/public", "bob");
+                long remaining = service.resolveBucket(policy, "bob").consume(1);
+                sink += policy.remainingHeader(Math.min(remaining, 10)).length();
+            }
+            long allocated = threads.getThreadAllocatedBytes(tid) - before;
+            if (round == 2) {
+                assertTrue(allocated < 100_000 / 10, allocated + " bytes for 100,000 requests"); // Less than 0.1 byte each
+            }
+        }
+        assertTrue(sink > 0);
+    }
+
+    // Bytes allocated by this thread for 100,000 passes through the filter, after two warm-up rounds
+    private static long allocatedBy(OncePerRequestFilter filter, HttpServletRequest request,
+                                    HttpServletResponse response, FilterChain chain) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long allocated = 0;
+        for (int round = 0; round < 3; round++) {
+            long before = threads.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < 100_000; i++) {
+                filter.doFilter(request, response, chain);
+            }
+            allocated = threads.getThreadAllocatedBytes(tid) - before;
+        }
+        return allocated;
+    }
+
+    @Test
+    void theFilterAddsNoAllocationToAnAllowedRequest() throws Exception {
+        RateLimiterService service = service(1000, policy("public", "/api/public", null, per(1000, Duration.ofSeconds(1))));
+        FilterChain chain = (req, res) -> now.addAndGet(1_000_000); // One request per token refill: always allowed
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/public");
+        request.addHeader(RateLimitFilter.USER_HEADER, "bob");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // The same servlet calls without any limiting: what OncePerRequestFilter and the mocks cost by themselves
+        OncePerRequestFilter passThrough = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+                    throws ServletException, IOException {
+                req.getHeader(RateLimitFilter.USER_HEADER);
+                req.getRequestURI();
+                res.setHeader(RateLimitFilter.REMAINING_HEADER, "9");
+                chain.doFilter(req, res);
+            }
+        };
+        long baseline = allocatedBy(passThrough, request, response, chain);
+        long limited = allocatedBy(new RateLimitFilter(service), request, response, chain);
+        System.out.printf("Allocated per request: pass-through %.1f bytes, rate limit filter %.1f bytes%n",
+                baseline / 100_000.0, limited / 100_000.0);
+
+        assertTrue(limited - baseline < 100_000 / 10, (limited - baseline) + " extra bytes for 100,000 requests");
+        assertEquals("999", response.getHeader(RateLimitFilter.REMAINING_HEADER));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.stockapi;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Quotes for a whole portfolio page in one call (/stocks?symbols=AAPL,MSFT,...):
+//   1. Cached symbols (fresh or stale) are answered straight away
+//   2. ALL misses are fetched at the same time on PriceCache's fetch threads: 200 misses cost ~2s, not 200 x 2s
+//   3. Duplicates are removed, and a symbol that is already being fetched (by this batch or by another request)
+//      is not fetched again: everyone waits on the same future
+//   4. One deadline for the whole batch. A symbol that is not back in time comes back as TIMEOUT, but its fetch
+//      keeps running, so it is cached for the next call.
+
+@Service
+public class BatchQuoteService {
+
+    public enum Status { CACHED, FETCHED, TIMEOUT, ERROR }
+
+    public record Quote(String symbol, Status status, String price, String error) {}
+
+    public record BatchQuote(List<Quote> quotes, int cached, int fetched, int timedOut, int failed, long tookMs) {}
+
+    private final PriceCache priceCache;
+    private final int maxSymbols;
+    private final Duration defaultDeadline;
+    private final Duration maxDeadline;
+
+    public BatchQuoteService(PriceCache priceCache,
+                             @Value("${stock.batch.max-symbols:500}") int maxSymbols,
+                             @Value("${stock.batch.deadline:2500ms}") Duration defaultDeadline,
+                             @Value("${stock.batch.max-deadline:10s}") Duration maxDeadline) {
+        this.priceCache = priceCache;
+        this.maxSymbols = maxSymbols;
+        this.defaultDeadline = defaultDeadline;
+        this.maxDeadline = maxDeadline;
+    }
+
+    // "AAPL, MSFT,,AAPL" -> [AAPL, MSFT]
+    public List<String> parse(String symbols) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String symbol : symbols.split(",")) {
+            if (!symbol.isBlank()) {
+                unique.add(symbol.trim());
+            }
+        }
+        if (unique.isEmpty()) {
+            throw new IllegalArgumentException("symbols must list at least one symbol");
+        }
+        if (unique.size() > maxSymbols) {
+            throw new IllegalArgumentException("At most " + maxSymbols + " symbols per request (got " + unique.size() + ")");
+        }
+        return new ArrayList<>(unique);
+    }
+
+    public BatchQuote quotes(List<String> symbols, Duration deadline) {
+        long start = System.nanoTime();
+        Duration budget = deadline == null ? defaultDeadline : deadline;
+        if (budget.isNegative() || budget.compareTo(maxDeadline) > 0) {
+            throw new IllegalArgumentException("deadline must be between 0 and " + maxDeadline.toMillis() + "ms");
+        }
+        long deadlineNanos = start + budget.toNanos();
+
+        // 1 + 2. Hits now, every miss started before we wait for any of them
+        Map<String, Quote> ready = new LinkedHashMap<>();
+        Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            String price = priceCache.getIfReady(symbol);
+            if (price != null) {
+                ready.put(symbol, new Quote(symbol, Status.CACHED, price, null));
+            } else {
+                pending.put(symbol, priceCache.fetch(symbol));
+            }
+        }
+
+        // 3 + 4. They all run in parallel, so waiting for them one by one costs the slowest, not the sum
+        for (Map.Entry<String, CompletableFuture<String>> entry : pending.entrySet()) {
+            String symbol = entry.getKey();
+            long remaining = deadlineNanos - System.nanoTime();
+            try {
+                // Never cancel on timeout: other requests may be waiting on the same future
+                String price = entry.getValue().get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                ready.put(symbol, new Quote(symbol, Status.FETCHED, price, null));
+            } catch (TimeoutException e) {
+                ready.put(symbol, new Quote(symbol, Status.TIMEOUT, null, "Not back within " + budget.toMillis() + "ms"));
+            } catch (ExecutionException e) {
+                ready.put(symbol, new Quote(symbol, Status.ERROR, null, String.valueOf(e.getCause().getMessage())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for quotes", e);
+            }
+        }
+
+        List<Quote> quotes = new ArrayList<>(symbols.size());
+        int[] counts = new int[Status.values().length];
+        for (String symbol : symbols) {
+            Quote quote = ready.get(symbol);
+            quotes.add(quote);
+            counts[quote.status().ordinal()]++;
+        }
+        long tookMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Batch of " + symbols.size() + " symbols: " + counts[Status.CACHED.ordinal()] + " cached, "
+                + counts[Status.FETCHED.ordinal()] + " fetched, " + counts[Status.TIMEOUT.ordinal()] + " timed out in " + tookMs + "ms");
+        return new BatchQuote(quotes, counts[Status.CACHED.ordinal()], counts[Status.FETCHED.ordinal()],
+                counts[Status.TIMEOUT.ordinal()], counts[Status.ERROR.ordinal()], tookMs);
+    }
+}
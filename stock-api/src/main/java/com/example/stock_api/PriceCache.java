@@ -0,0 +1,175 @@
+package com.example.stockapi;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Replaces @Cacheable("prices"), whose ConcurrentHashMap never expired anything and grew forever.
+// The life of one price (ttl=30s, refresh-ahead=5s, stale-grace=30s):
+//
+//   0s ............ 25s ..................... 30s ..................... 60s
+//   |    FRESH     |   REFRESH-AHEAD          |   STALE-WHILE-REVALIDATE |  EXPIRED
+//   served as is    served as is; the first     still served at once;     the next caller
+//                   read starts a background    (refresh if none running)  waits for the API
+//                   fetch
+//
+// A hot symbol is read all the time, so it is always refreshed in the background before the TTL and
+// nobody waits the 2 seconds for it again. Only a symbol nobody asked for in ttl + stale-grace pays the full price.
+// Concurrent misses for the same symbol share ONE upstream call (callers share the same future, so waiting
+// costs no thread), and if a background refresh fails the old price stays in place (until it expires).
+// Reads are counted per symbol so PriceSnapshot knows which symbols are hot across a restart. Clients can send any
+// symbol, so the counters live in a second Caffeine cache of max-size entries: its frequency sketch lets a symbol
+// read once push out another one-off symbol, but not a symbol that is read all the time.
+
+@Component
+public class PriceCache implements DisposableBean, MeterBinder {
+
+    public record Stats(long hits, long misses, long loads, long loadFailures, double averageLoadMs, long upstreamCalls, long size) {}
+
+    private final StockService stockService;
+    private final AsyncLoadingCache<String, String> cache;
+    private final ExecutorService fetcher;
+    private final Cache<String, LongAdder> reads;
+
+    public PriceCache(StockService stockService,
+                      @Value("${stock.cache.ttl:30s}") Duration ttl,
+                      @Value("${stock.cache.refresh-ahead:5s}") Duration refreshAhead,
+                      @Value("${stock.cache.stale-grace:30s}") Duration staleGrace,
+                      @Value("${stock.cache.max-size:10000}") long maxSize,
+                      @Value("${stock.cache.fetch-threads:500}") int fetchThreads) {
+        if (refreshAhead.isNegative() || refreshAhead.compareTo(ttl) >= 0) {
+            throw new IllegalArgumentException("stock.cache.refresh-ahead must be between 0 and stock.cache.ttl");
+        }
+        this.stockService = stockService;
+
+        // Loads and refreshes spend their life asleep on the slow API, so they get their own (large) pool instead of
+        // the common pool. One thread per symbol fetched at the same time: on Java 21 these would be virtual threads.
+        AtomicInteger threadId = new AtomicInteger();
+        this.fetcher = Executors.newFixedThreadPool(fetchThreads, r -> {
+            Thread t = new Thread(r, "price-fetch-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(ttl.minus(refreshAhead)) // Refresh-ahead: starts before the TTL runs out
+                .expireAfterWrite(ttl.plus(staleGrace))     // Past the TTL the old price is still served while refreshing
+                .executor(fetcher)
+                .recordStats()
+                .buildAsync(stockService::getStockPrice);
+
+        // Bounded even when no snapshot ever ages the counts (stock.snapshot.enabled=false)
+        this.reads = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .executor(Runnable::run) // Evict on the reading thread: the bound holds at every moment
+                .build();
+    }
+
+    public String get(String symbol) {
+        countRead(symbol);
+        try {
+            return cache.get(symbol).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // The price if it is already here (fresh or stale), null on a miss. Never waits.
+    public String getIfReady(String symbol) {
+        countRead(symbol);
+        CompletableFuture<String> price = cache.getIfPresent(symbol);
+        return price != null && price.isDone() && !price.isCompletedExceptionally() ? price.join() : null;
+    }
+
+    // Starts (or joins) the fetch of a symbol. Every caller asking for the same symbol gets the same future.
+    public CompletableFuture<String> fetch(String symbol) {
+        return cache.get(symbol);
+    }
+
+    // Fetches a fresh price now (joining one already in flight) and stores it. Used by the stream pollers.
+    public CompletableFuture<String> refresh(String symbol) {
+        return cache.synchronous().refresh(symbol);
+    }
+
+    public void invalidate(String symbol) {
+        cache.synchronous().invalidate(symbol);
+    }
+
+    public Stats stats() {
+        cache.synchronous().cleanUp();
+        CacheStats stats = cache.synchronous().stats();
+        return new Stats(stats.hitCount(), stats.missCount(), stats.loadSuccessCount(), stats.loadFailureCount(),
+                stats.averageLoadPenalty() / 1_000_000.0, stockService.calls(), cache.synchronous().estimatedSize());
+    }
+
+    // --- access frequencies (see PriceSnapshot) ---
+
+    private void countRead(String symbol) {
+        reads.get(symbol, s -> new LongAdder()).increment();
+    }
+
+    // Symbols with a read count (at most max-size)
+    long trackedSymbols() {
+        reads.cleanUp();
+        return reads.estimatedSize();
+    }
+
+    // The most read symbols first, with their read counts. Counts are then halved (and symbols nobody reads any
+    // more fall out), so a symbol that was hot yesterday but not today slowly loses its place.
+    public Map<String, Long> hottestThenAge(int limit) {
+        List<Map.Entry<String, Long>> counts = new ArrayList<>();
+        reads.asMap().forEach((symbol, count) -> counts.add(Map.entry(symbol, count.sum())));
+        counts.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+
+        Map<String, Long> hottest = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : counts) {
+            LongAdder count = reads.getIfPresent(entry.getKey());
+            long half = entry.getValue() / 2;
+            if (half == 0) {
+                reads.invalidate(entry.getKey());
+            } else if (count != null) {
+                count.add(-(entry.getValue() - half));
+            }
+            if (hottest.size() < limit) {
+                hottest.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return hottest;
+    }
+
+    // Counts read from a snapshot, so they survive a restart that comes before the next snapshot
+    public void restoreReads(Map<String, Long> counts) {
+        counts.forEach((symbol, count) -> reads.get(symbol, s -> new LongAdder()).add(count));
+    }
+
+    // cache.gets{result=hit|miss}, cache.load.duration, cache.evictions ... under cache=prices on /actuator/metrics
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "prices");
+    }
+
+    @Override
+    public void destroy() {
+        fetcher.shutdownNow();
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.stockapi;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// After a restart PriceCache is empty, so the first request for EVERY symbol waits 2s for the API at the same time.
+//   1. SNAPSHOT: every stock.snapshot.interval (and on shutdown) the most read symbols and their read counts are
+//      written to a small binary file. Prices are not saved: they are fetched again, see 3.
+//   2. Written to a temp file, then moved over the old one: a crash mid-write never leaves half a snapshot
+//   3. WARM-UP: on startup the top-K symbols of the snapshot are fetched in parallel (one upstream latency for all
+//      of them) before the app reports ready (/actuator/health/readiness), up to stock.snapshot.warmup-timeout.
+//      A missing or unreadable snapshot means a cold start, never a failed one.
+//
+// File: int MAGIC, int VERSION, long savedAt, int count, then count x (UTF symbol, long reads), most read first
+
+@Component
+public class PriceSnapshot implements ApplicationRunner, DisposableBean, MeterBinder {
+
+    public record Warmup(int symbolsInSnapshot, int requested, int warmed, int notInTime, long tookMs) {}
+
+    private static final int MAGIC = 0x53544b50; // "STKP"
+    private static final int VERSION = 1;
+
+    private final PriceCache priceCache;
+    private final boolean enabled;
+    private final Path file;
+    private final Duration interval;
+    private final int maxEntries;
+    private final int topK;
+    private final Duration warmupTimeout;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Warmup lastWarmup = new Warmup(0, 0, 0, 0, 0);
+    private volatile boolean started;
+
+    public PriceSnapshot(PriceCache priceCache,
+                         @Value("${stock.snapshot.enabled:true}") boolean enabled,
+                         @Value("${stock.snapshot.file:${java.io.tmpdir}/stock-api/prices.snapshot}") Path file,
+                         @Value("${stock.snapshot.interval:60s}") Duration interval,
+                         @Value("${stock.snapshot.max-entries:10000}") int maxEntries,
+                         @Value("${stock.snapshot.warmup-top-k:200}") int topK,
+                         @Value("${stock.snapshot.warmup-timeout:10s}") Duration warmupTimeout) {
+        this.priceCache = priceCache;
+        this.enabled = enabled;
+        this.file = file;
+        this.interval = interval;
+        this.maxEntries = maxEntries;
+        this.topK = topK;
+        this.warmupTimeout = warmupTimeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "price-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Runners run before Spring Boot switches readiness to ACCEPTING_TRAFFIC
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        warmUp();
+        started = true; // Only now: a snapshot taken before the warm-up would overwrite the old one with nothing
+        scheduler.scheduleWithFixedDelay(this::saveQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public Warmup warmUp() {
+        long start = System.nanoTime();
+        Map<String, Long> saved = load();
+        priceCache.restoreReads(saved);
+
+        // 3. Every fetch is started before we wait for any of them
+        List<CompletableFuture<String>> fetches = new ArrayList<>();
+        for (String symbol : saved.keySet()) {
+            if (fetches.size() == topK) {
+                break;
+            }
+            fetches.add(priceCache.fetch(symbol));
+        }
+        try {
+            CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0]))
+                    .get(warmupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Late symbols keep loading in the background; failed ones are fetched again on first use
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int warmed = (int) fetches.stream().filter(f -> f.isDone() && !f.isCompletedExceptionally()).count();
+        Warmup warmup = new Warmup(saved.size(), fetches.size(), warmed, fetches.size() - warmed,
+                (System.nanoTime() - start) / 1_000_000);
+        lastWarmup = warmup;
+        System.out.println("🔥 Warm-up: " + warmed + "/" + fetches.size() + " symbols from " + file + " in " + warmup.tookMs() + "ms");
+        return warmup;
+    }
+
+    public void save() throws IOException {
+        Map<String, Long> hottest = priceCache.hottestThenAge(maxEntries);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(hottest.size());
+            for (Map.Entry<String, Long> entry : hottest.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not write the price snapshot " + file + ": " + e);
+        }
+    }
+
+    // Symbol -> reads, most read first. Empty when there is no usable snapshot.
+    Map<String, Long> load() {
+        Map<String, Long> saved = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a price snapshot (or an older format)");
+            }
+            in.readLong(); // savedAt
+            int count = in.readInt();
+            if (count < 0 || count > maxEntries) {
+                throw new IOException("bad entry count " + count);
+            }
+            for (int i = 0; i < count; i++) {
+                saved.put(in.readUTF(), in.readLong());
+            }
+            return saved;
+        } catch (NoSuchFileException e) {
+            return Map.of(); // First start
+        } catch (IOException e) {
+            System.out.println("Ignoring the price snapshot " + file + " (" + e.getMessage() + "), starting cold");
+            return Map.of();
+        }
+    }
+
+    public Warmup lastWarmup() {
+        return lastWarmup;
+    }
+
+    // How long the last start spent warming up and how many symbols it got: the cold-start cost of a deploy
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("stock.cache.warmup.duration", this, TimeUnit.MILLISECONDS, s -> s.lastWarmup.tookMs())
+                .register(registry);
+        Gauge.builder("stock.cache.warmup.symbols", this, s -> s.lastWarmup.warmed()).register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        if (started) {
+            saveQuietly(); // The freshest counts for the next start
+        }
+    }
+}
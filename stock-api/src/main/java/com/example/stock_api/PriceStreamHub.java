@@ -0,0 +1,325 @@
+package com.example.stockapi;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Server-push prices (/stream/prices?symbols=AAPL,MSFT, see PriceStreamServlet) instead of clients polling /stock:
+//   1. ONE POLLER PER SYMBOL: the first subscriber to a symbol starts its poller, the last one to leave stops it.
+//      10,000 clients watching AAPL cost one upstream call per poll, not 10,000.
+//   2. ENCODED ONCE: every tick becomes one SSE frame (byte[]) that is written as-is to every subscriber
+//   3. BACKPRESSURE PER SUBSCRIBER: writes are non-blocking (Servlet WriteListener). A client that cannot take
+//      more keeps only the NEWEST frame per symbol: older ticks are dropped, never queued, so a slow client
+//      costs at most one frame per symbol and never slows anyone else down.
+//   4. NO THREAD PER CLIENT: an idle subscriber is an async request and a few objects; a handful of writer
+//      threads serve all of them
+
+@Component
+public class PriceStreamHub implements SmartLifecycle, DisposableBean {
+
+    public record Stats(int symbols, int subscribers, long ticks, long framesWritten, long framesDropped, long disconnects) {}
+
+    private static final String HEARTBEAT = "";
+    private static final byte[] HEARTBEAT_FRAME = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final PriceCache priceCache;
+    private final ObjectMapper objectMapper;
+    private final Duration pollInterval;
+    private final int maxSymbols;
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService writers;
+
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+    private volatile boolean running;
+
+    public PriceStreamHub(PriceCache priceCache,
+                          ObjectMapper objectMapper,
+                          @Value("${stock.stream.poll-interval:1s}") Duration pollInterval,
+                          @Value("${stock.stream.heartbeat:15s}") Duration heartbeat,
+                          @Value("${stock.stream.max-symbols:50}") int maxSymbols,
+                          @Value("${stock.stream.writer-threads:2}") int writerThreads) {
+        this.priceCache = priceCache;
+        this.objectMapper = objectMapper;
+        this.pollInterval = pollInterval;
+        this.maxSymbols = maxSymbols;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon("price-stream-scheduler"));
+        this.writers = Executors.newFixedThreadPool(writerThreads, daemon("price-stream-writer"));
+
+        // Idle connections still get a byte now and then: proxies keep them open, and dead clients are found
+        scheduler.scheduleWithFixedDelay(() -> subscribers.forEach(s -> s.offer(HEARTBEAT, 0, HEARTBEAT_FRAME)),
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger id = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + id.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // "AAPL, MSFT,,AAPL" -> [AAPL, MSFT]
+    public List<String> parse(String symbols) {
+        Set<String> unique = new LinkedHashSet<>();
+        if (symbols != null) {
+            for (String symbol : symbols.split(",")) {
+                if (!symbol.isBlank()) {
+                    unique.add(symbol.trim());
+                }
+            }
+        }
+        if (unique.isEmpty() || unique.size() > maxSymbols) {
+            throw new IllegalArgumentException("symbols must list between 1 and " + maxSymbols + " symbols");
+        }
+        return new ArrayList<>(unique);
+    }
+
+    // --- subscriptions ---
+
+    // The servlet registers the subscriber as the stream's WriteListener between these two calls
+    public Subscriber subscriber(AsyncContext context, ServletOutputStream out, List<String> symbols) {
+        return new Subscriber(context, out, symbols);
+    }
+
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        for (String symbol : subscriber.symbols) {
+            Channel channel = channels.compute(symbol, (s, existing) -> {
+                Channel c = existing != null ? existing : new Channel(s);
+                c.subscribers.add(subscriber);
+                return c;
+            });
+            if (channel.started.compareAndSet(false, true)) {
+                poll(channel); // First subscriber: this symbol gets its poller
+            }
+            Tick last = channel.last;
+            if (last != null) {
+                subscriber.offer(symbol, last.seq(), last.frame()); // Something to show right away
+            }
+        }
+    }
+
+    public void close(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return; // Already closed (error and complete can both report it)
+        }
+        disconnects.increment();
+        for (String symbol : subscriber.symbols) {
+            // Last one out removes the channel; its poller notices and stops
+            channels.computeIfPresent(symbol, (s, c) -> {
+                c.subscribers.remove(subscriber);
+                return c.subscribers.isEmpty() ? null : c;
+            });
+        }
+    }
+
+    // --- one poller per symbol ---
+
+    private void poll(Channel channel) {
+        if (channels.get(channel.symbol) != channel) {
+            return; // Nobody watches this symbol any more
+        }
+        priceCache.refresh(channel.symbol).whenComplete((price, error) -> {
+            if (price != null) {
+                publish(channel, price);
+            }
+            if (channels.get(channel.symbol) == channel) {
+                scheduler.schedule(() -> poll(channel), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private void publish(Channel channel, String price) {
+        long seq = channel.seq.incrementAndGet();
+        Map<String, Object> tick = new LinkedHashMap<>();
+        tick.put("symbol", channel.symbol);
+        tick.put("price", price);
+        tick.put("seq", seq);
+        tick.put("time", System.currentTimeMillis());
+        // The one and only serialization of this tick
+        byte[] frame = ("id: " + seq + "\nevent: price\ndata: " + objectMapper.writeValueAsString(tick) + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+        channel.last = new Tick(seq, frame);
+        ticks.increment();
+        for (Subscriber subscriber : channel.subscribers) {
+            subscriber.offer(channel.symbol, seq, frame);
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(channels.size(), subscribers.size(), ticks.sum(), written.sum(), dropped.sum(), disconnects.sum());
+    }
+
+    public int pollers() {
+        return channels.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    // Runs before the web server's graceful shutdown (higher phase), which would otherwise wait for
+    // every open stream to end by itself
+    @Override
+    public void stop() {
+        running = false;
+        for (Subscriber subscriber : subscribers) {
+            close(subscriber);
+            subscriber.context.complete();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    private record Tick(long seq, byte[] frame) {}
+
+    private static final class Channel {
+        final String symbol;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean started = new AtomicBoolean();
+        final AtomicLong seq = new AtomicLong();
+        volatile Tick last;
+
+        Channel(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    // One SSE connection. pending holds at most one frame per symbol: offering a newer one replaces (drops) the older.
+    // newest remembers the last seq offered per symbol, so a frame that is not newer (the catch-up frame of
+    // subscribe() racing the poller) is ignored instead of arriving twice or out of order.
+    public final class Subscriber implements WriteListener {
+        private final AsyncContext context;
+        private final ServletOutputStream out;
+        private final List<String> symbols;
+        private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+        private final Map<String, Long> newest = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean(); // A drain is queued, running, or waiting for the socket
+
+        Subscriber(AsyncContext context, ServletOutputStream out, List<String> symbols) {
+            this.context = context;
+            this.out = out;
+            this.symbols = symbols;
+        }
+
+        void offer(String symbol, long seq, byte[] frame) {
+            if (symbol == HEARTBEAT) {
+                pending.put(symbol, frame);
+            } else {
+                boolean[] accepted = new boolean[1];
+                newest.compute(symbol, (s, last) -> {
+                    if (last != null && last >= seq) {
+                        return last;
+                    }
+                    accepted[0] = true;
+                    if (pending.put(symbol, frame) != null) {
+                        dropped.increment(); // The client had not taken the previous tick yet: it will only see this one
+                    }
+                    return seq;
+                });
+                if (!accepted[0]) {
+                    return;
+                }
+            }
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        // The container calls this when a socket that was full can take more
+        @Override
+        public void onWritePossible() {
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close(this);
+        }
+
+        private synchronized void drain() {
+            try {
+                while (true) {
+                    if (!out.isReady()) {
+                        return; // Socket full: stay "draining", onWritePossible resumes
+                    }
+                    byte[] frame = next();
+                    if (frame == null) {
+                        out.flush();
+                        if (!out.isReady()) {
+                            return;
+                        }
+                        draining.set(false);
+                        // An offer may have slipped in after next() came back empty
+                        if (pending.isEmpty() || !draining.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    out.write(frame);
+                    written.increment();
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(this); // Client went away
+                try {
+                    context.complete();
+                } catch (IllegalStateException ignored) {
+                    // Already completed by the container
+                }
+            }
+        }
+
+        private byte[] next() {
+            Iterator<String> symbolsWithFrames = pending.keySet().iterator();
+            while (symbolsWithFrames.hasNext()) {
+                byte[] frame = pending.remove(symbolsWithFrames.next());
+                if (frame != null) {
+                    return frame;
+                }
+            }
+            return null;
+        }
+    }
+}
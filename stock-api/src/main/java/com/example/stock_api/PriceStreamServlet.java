@@ -0,0 +1,70 @@
+package com.example.stockapi;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+// GET /stream/prices?symbols=AAPL,MSFT -> text/event-stream, one "price" event per tick and symbol:
+//   id: 12
+//   event: price
+//   data: {"symbol":"AAPL","price":"Price of AAPL: $142.1","seq":12,"time":1760000000000}
+// A plain async servlet rather than a controller: the connection is handed to PriceStreamHub as raw
+// non-blocking output, so a tick is written as the bytes it was encoded to once, to every subscriber.
+
+public class PriceStreamServlet extends HttpServlet {
+
+    private final PriceStreamHub hub;
+
+    public PriceStreamServlet(PriceStreamHub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<String> symbols;
+        try {
+            symbols = hub.parse(request.getParameter("symbols"));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no"); // Ask proxies (nginx) not to buffer the stream
+
+        AsyncContext context = request.startAsync();
+        context.setTimeout(0); // Open until the client leaves
+        ServletOutputStream out = response.getOutputStream();
+        PriceStreamHub.Subscriber subscriber = hub.subscriber(context, out, symbols);
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                hub.close(subscriber);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                hub.close(subscriber);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                hub.close(subscriber);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        out.setWriteListener(subscriber); // Non-blocking from here on
+        hub.subscribe(subscriber);
+    }
+}
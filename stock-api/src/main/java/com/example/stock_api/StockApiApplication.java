@@ -1,15 +1,37 @@
 package com.example.stockapi;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.boot.tomcat.TomcatConnectorCustomizer;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.util.unit.DataSize;
 
 @SpringBootApplication
-@EnableCaching
 public class StockApiApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(StockApiApplication.class, args);
 	}
 
+	// Server-Sent Events price stream, next to the DispatcherServlet (see PriceStreamServlet)
+	@Bean
+	public ServletRegistrationBean<PriceStreamServlet> priceStreamServlet(PriceStreamHub hub) {
+		ServletRegistrationBean<PriceStreamServlet> registration =
+				new ServletRegistrationBean<>(new PriceStreamServlet(hub), "/stream/prices");
+		registration.setAsyncSupported(true);
+		return registration;
+	}
+
+	// Every open stream keeps its socket buffers (8KB each way by default) for as long as it is open.
+	// A price frame is ~150 bytes, so smaller buffers let the same heap hold many more subscribers.
+	@Bean
+	public TomcatConnectorCustomizer socketBuffers(@Value("${stock.stream.socket-buffer:2KB}") DataSize size) {
+		return connector -> {
+			connector.setProperty("socket.appReadBufSize", String.valueOf(size.toBytes()));
+			connector.setProperty("socket.appWriteBufSize", String.valueOf(size.toBytes()));
+		};
+	}
+
 }
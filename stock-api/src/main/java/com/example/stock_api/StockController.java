@@ -1,27 +1,70 @@
 package com.example.stockapi;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import java.time.Duration;
 
 // This is what is hit from the browser
 
 @RestController
 public class StockController {
 
-    private final StockService stockService;
+    private final PriceCache priceCache;
+    private final BatchQuoteService batchQuoteService;
+    private final PriceStreamHub priceStreamHub;
+    private final PriceSnapshot priceSnapshot;
 
-    public StockController(StockService stockService) {
-        this.stockService = stockService;
+    public StockController(PriceCache priceCache, BatchQuoteService batchQuoteService, PriceStreamHub priceStreamHub,
+                           PriceSnapshot priceSnapshot) {
+        this.priceCache = priceCache;
+        this.batchQuoteService = batchQuoteService;
+        this.priceStreamHub = priceStreamHub;
+        this.priceSnapshot = priceSnapshot;
     }
 
     @GetMapping("/stock/{symbol}")
     public String getStock(@PathVariable String symbol) {
         long start = System.currentTimeMillis();
         
-        String price = stockService.getStockPrice(symbol);
+        String price = priceCache.get(symbol); // Served from PriceCache, see there for TTL / refresh-ahead
         
         long end = System.currentTimeMillis();
         return price + " (Took " + (end - start) + "ms)";
     }
-}
\ No newline at end of file
+
+    // A whole portfolio at once: /stocks?symbols=AAPL,MSFT,GOOG&deadlineMs=1500
+    // Every symbol gets a status (CACHED, FETCHED, TIMEOUT, ERROR); late ones do not hold up the rest.
+    @GetMapping("/stocks")
+    public BatchQuoteService.BatchQuote getStocks(@RequestParam String symbols,
+                                                  @RequestParam(required = false) Long deadlineMs) {
+        return batchQuoteService.quotes(batchQuoteService.parse(symbols),
+                deadlineMs == null ? null : Duration.ofMillis(deadlineMs));
+    }
+
+    @GetMapping("/cache/stats")
+    public PriceCache.Stats cacheStats() {
+        return priceCache.stats();
+    }
+
+    // What this start warmed from the snapshot, and how long it took before the app reported ready
+    @GetMapping("/cache/warmup")
+    public PriceSnapshot.Warmup cacheWarmup() {
+        return priceSnapshot.lastWarmup();
+    }
+
+    // Live subscriptions to /stream/prices: symbols polled, subscribers, ticks, frames written and dropped
+    @GetMapping("/stream/stats")
+    public PriceStreamHub.Stats streamStats() {
+        return priceStreamHub.stats();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+}
@@ -1,29 +1,44 @@
 package com.example.stockapi;
 
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
 
 // This class simulates the 3rd Party API. It sleeps for 2 seconds to mimic network latency.
+// It is not cached itself any more: PriceCache sits in front of it (TTL, size bound, refresh-ahead).
 
 @Service
 public class StockService {
 
+    private final long latencyMillis;
+    private final AtomicLong calls = new AtomicLong();
+
+    public StockService(@Value("${stock.upstream.latency:2000ms}") Duration latency) {
+        this.latencyMillis = latency.toMillis();
+    }
+
     // This method simulates fetching data from a slow external API (e.g., NYSE)
-    @Cacheable("prices")
     public String getStockPrice(String symbol) {
+        calls.incrementAndGet();
         System.out.println("⚠️ Fetching price for " + symbol + " from External API (SLOW)...");
         simulateSlowNetwork();
-        
+
         // Return a fake price
         return "Price of " + symbol + ": $" + (Math.random() * 100 + 100);
     }
 
+    // How many times we actually went to the external API
+    public long calls() {
+        return calls.get();
+    }
+
     private void simulateSlowNetwork() {
         try {
-            long start = System.currentTimeMillis();
-            Thread.sleep(2000); // Wait 2 seconds
+            Thread.sleep(latencyMillis); // Wait 2 seconds by default
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching a price", e);
         }
     }
-}
\ No newline at end of file
+}
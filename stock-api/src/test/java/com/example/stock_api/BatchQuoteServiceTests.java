@@ -0,0 +1,104 @@
+package com.example.stockapi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchQuoteServiceTests {
+
+    private final List<PriceCache> caches = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        caches.forEach(PriceCache::destroy);
+    }
+
+    private BatchQuoteService service(StockService upstream) {
+        PriceCache cache = new PriceCache(upstream, Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofSeconds(30), 1000, 200);
+        caches.add(cache);
+        return new BatchQuoteService(cache, 500, Duration.ofSeconds(3), Duration.ofSeconds(10));
+    }
+
+    private static List<String> symbols(String prefix, int count) {
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            symbols.add(prefix + i);
+        }
+        return symbols;
+    }
+
+    @Test
+    void fetchesAllMissesAtTheSameTime() {
+        StockService upstream = new StockService(Duration.ofMillis(300));
+        BatchQuoteService service = service(upstream);
+
+        BatchQuoteService.BatchQuote batch = service.quotes(symbols("SYM", 100), null);
+
+        assertEquals(100, batch.fetched());
+        assertTrue(batch.tookMs() < 1500, "100 misses took " + batch.tookMs() + "ms"); // One after the other: 30s
+        assertEquals(100, upstream.calls());
+        batch.quotes().forEach(q -> assertNotNull(q.price()));
+    }
+
+    @Test
+    void answersCachedSymbolsWithoutWaiting() {
+        BatchQuoteService service = service(new StockService(Duration.ofMillis(300)));
+        service.quotes(List.of("AAPL", "MSFT"), null);
+
+        BatchQuoteService.BatchQuote batch = service.quotes(List.of("AAPL", "MSFT", "GOOG"), null);
+
+        assertEquals(List.of(BatchQuoteService.Status.CACHED, BatchQuoteService.Status.CACHED, BatchQuoteService.Status.FETCHED),
+                batch.quotes().stream().map(BatchQuoteService.Quote::status).toList());
+        assertEquals(List.of("AAPL", "MSFT", "GOOG"), batch.quotes().stream().map(BatchQuoteService.Quote::symbol).toList());
+    }
+
+    @Test
+    void overlappingRequestsShareTheirUpstreamCalls() {
+        StockService upstream = new StockService(Duration.ofMillis(500));
+        BatchQuoteService service = service(upstream);
+
+        // Two pages at the same time, 20 symbols in common (and duplicates inside the request itself)
+        CompletableFuture<BatchQuoteService.BatchQuote> first = CompletableFuture.supplyAsync(
+                () -> service.quotes(service.parse(String.join(",", symbols("S", 30)) + ",S1,S2"), null));
+        List<String> reversed = symbols("S", 20);
+        Collections.reverse(reversed);
+        CompletableFuture<BatchQuoteService.BatchQuote> second = CompletableFuture.supplyAsync(
+                () -> service.quotes(reversed, null));
+
+        assertEquals(30, first.join().quotes().size());
+        assertEquals(20, second.join().quotes().size());
+        assertEquals(30, upstream.calls()); // One call per distinct symbol, not 52
+    }
+
+    @Test
+    void symbolsPastTheDeadlineComeBackAsTimeoutsAndAreCachedLater() throws Exception {
+        StockService upstream = new StockService(Duration.ofMillis(1000));
+        BatchQuoteService service = service(upstream);
+
+        BatchQuoteService.BatchQuote late = service.quotes(List.of("AAPL", "MSFT"), Duration.ofMillis(200));
+        assertEquals(2, late.timedOut());
+        assertTrue(late.tookMs() < 600);
+
+        Thread.sleep(1300); // The fetches were not cancelled
+        assertEquals(2, service.quotes(List.of("AAPL", "MSFT"), Duration.ofMillis(200)).cached());
+        assertEquals(2, upstream.calls());
+    }
+
+    @Test
+    void rejectsEmptyOversizedOrUnboundedRequests() {
+        BatchQuoteService service = service(new StockService(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> service.parse(" , ,"));
+        assertThrows(IllegalArgumentException.class, () -> service.parse(String.join(",", symbols("S", 501))));
+        assertThrows(IllegalArgumentException.class, () -> service.quotes(List.of("AAPL"), Duration.ofMinutes(5)));
+        assertEquals(List.of("AAPL", "MSFT"), service.parse("AAPL, MSFT,,AAPL"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.stockapi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Scaled-down timings: the API takes 300ms, a price is fresh for 1s, refresh-ahead starts at 0.4s,
+// and stale prices are served until 2s
+class PriceCacheTests {
+
+    private final StockService upstream = new StockService(Duration.ofMillis(300));
+    private final PriceCache cache = new PriceCache(upstream,
+            Duration.ofSeconds(1), Duration.ofMillis(600), Duration.ofSeconds(1), 100, 16);
+
+    @AfterEach
+    void stop() {
+        cache.destroy();
+    }
+
+    private static long timed(Runnable call) {
+        long start = System.nanoTime();
+        call.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    @Test
+    void onlyTheFirstCallerWaitsForTheApi() {
+        assertTrue(timed(() -> cache.get("AAPL")) >= 300);
+        assertTrue(timed(() -> cache.get("AAPL")) < 100);
+        assertEquals(1, upstream.calls());
+    }
+
+    @Test
+    void concurrentMissesShareOneUpstreamCall() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<String>> prices = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            prices.add(pool.submit(() -> {
+                go.await();
+                return cache.get("MSFT");
+            }));
+        }
+        go.countDown();
+        String first = prices.get(0).get();
+        for (Future<String> price : prices) {
+            assertEquals(first, price.get());
+        }
+        pool.shutdown();
+        assertEquals(1, upstream.calls());
+    }
+
+    @Test
+    void aHotSymbolIsRefreshedBeforeItExpiresWithoutMakingAnyoneWait() throws Exception {
+        String old = cache.get("GOOG");
+        Thread.sleep(500); // Past the refresh-ahead point, before the TTL
+
+        String[] served = new String[1];
+        assertTrue(timed(() -> served[0] = cache.get("GOOG")) < 100); // Starts the refresh, does not wait for it
+        assertEquals(old, served[0]);
+
+        Thread.sleep(500); // The refresh has finished
+        assertNotEquals(old, cache.get("GOOG"));
+        assertEquals(2, upstream.calls());
+    }
+
+    @Test
+    void pastTheTtlTheStalePriceIsServedWhileItRevalidates() throws Exception {
+        String old = cache.get("TSLA");
+        Thread.sleep(1200); // Past the TTL, inside the stale grace
+
+        String[] served = new String[1];
+        assertTrue(timed(() -> served[0] = cache.get("TSLA")) < 100);
+        assertEquals(old, served[0]);
+
+        Thread.sleep(500);
+        assertNotEquals(old, cache.get("TSLA"));
+    }
+
+    @Test
+    void aSymbolNobodyReadsEventuallyExpires() throws Exception {
+        cache.get("IBM");
+        Thread.sleep(2100);
+        assertTrue(timed(() -> cache.get("IBM")) >= 300);
+        assertEquals(2, upstream.calls());
+    }
+
+    @Test
+    void staysWithinItsMaximumSize() {
+        PriceCache small = new PriceCache(new StockService(Duration.ZERO),
+                Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofSeconds(30), 3, 1);
+        for (int i = 0; i < 20; i++) {
+            small.get("SYM" + i);
+        }
+        assertTrue(small.stats().size() <= 3);
+        small.destroy();
+    }
+
+    @Test
+    void refreshAheadMustFitInsideTheTtl() {
+        assertThrows(IllegalArgumentException.class, () -> new PriceCache(upstream,
+                Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ZERO, 10, 1));
+    }
+
+    @Test
+    void readCountsStayBoundedWithoutSnapshotsAndKeepTheHotSymbols() {
+        for (int i = 0; i < 10_000; i++) {
+            cache.getIfReady("JUNK" + i); // Symbols a client made up, never aged by a snapshot
+            if (i % 10 == 0) {
+                cache.getIfReady("AAPL"); // Read all along
+            }
+        }
+
+        assertTrue(cache.trackedSymbols() <= 100, "tracked " + cache.trackedSymbols());
+        assertEquals(Map.of("AAPL", 1000L), cache.hottestThenAge(1));
+    }
+}
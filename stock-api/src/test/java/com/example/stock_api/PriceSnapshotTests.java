@@ -0,0 +1,103 @@
+package com.example.stockapi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceSnapshotTests {
+
+    @TempDir
+    Path dir;
+
+    private final List<PriceCache> caches = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        caches.forEach(PriceCache::destroy);
+    }
+
+    private PriceCache cache(StockService upstream) {
+        PriceCache cache = new PriceCache(upstream, Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofSeconds(30), 1000, 200);
+        caches.add(cache);
+        return cache;
+    }
+
+    private PriceSnapshot snapshot(PriceCache cache, int topK) {
+        return new PriceSnapshot(cache, true, dir.resolve("prices.snapshot"), Duration.ofMinutes(1), 1000, topK, Duration.ofSeconds(5));
+    }
+
+    private static void read(PriceCache cache, String symbol, int times) {
+        for (int i = 0; i < times; i++) {
+            cache.get(symbol);
+        }
+    }
+
+    @Test
+    void theNextStartWarmsTheMostReadSymbols() throws Exception {
+        PriceCache before = cache(new StockService(Duration.ZERO));
+        read(before, "AAPL", 5);
+        read(before, "MSFT", 3);
+        read(before, "GOOG", 1);
+        snapshot(before, 2).save();
+
+        // "Restart": an empty cache in front of the same upstream
+        StockService upstream = new StockService(Duration.ofMillis(100));
+        PriceCache after = cache(upstream);
+        PriceSnapshot.Warmup warmup = snapshot(after, 2).warmUp();
+
+        assertEquals(new PriceSnapshot.Warmup(3, 2, 2, 0, warmup.tookMs()), warmup);
+        assertEquals(2, upstream.calls());
+        assertNotNull(after.getIfReady("AAPL"));
+        assertNotNull(after.getIfReady("MSFT"));
+        assertNull(after.getIfReady("GOOG")); // Not in the top 2
+    }
+
+    @Test
+    void warmsAllSymbolsInParallel() throws Exception {
+        PriceCache before = cache(new StockService(Duration.ZERO));
+        for (int i = 0; i < 100; i++) {
+            read(before, "SYM" + i, 1);
+        }
+        snapshot(before, 100).save();
+
+        PriceSnapshot.Warmup warmup = snapshot(cache(new StockService(Duration.ofMillis(500))), 100).warmUp();
+
+        assertEquals(100, warmup.warmed());
+        assertTrue(warmup.tookMs() < 2500, "warm-up took " + warmup.tookMs() + "ms"); // One after the other: 50s
+    }
+
+    @Test
+    void readCountsAreAgedAtEverySnapshot() throws Exception {
+        PriceCache cache = cache(new StockService(Duration.ZERO));
+        read(cache, "AAPL", 8);
+        read(cache, "MSFT", 1);
+        PriceSnapshot snapshot = snapshot(cache, 10);
+
+        snapshot.save();
+        assertEquals(Map.of("AAPL", 8L, "MSFT", 1L), snapshot.load());
+        snapshot.save(); // Nobody read anything since: AAPL halves, MSFT falls out
+        assertEquals(Map.of("AAPL", 4L), snapshot.load());
+    }
+
+    @Test
+    void aMissingOrDamagedSnapshotMeansAColdStart() throws Exception {
+        PriceCache cache = cache(new StockService(Duration.ZERO));
+        assertEquals(0, snapshot(cache, 10).warmUp().requested());
+
+        Files.write(dir.resolve("prices.snapshot"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+        PriceSnapshot.Warmup warmup = snapshot(cache, 10).warmUp();
+        assertEquals(0, warmup.symbolsInSnapshot());
+        assertEquals(0, warmup.requested());
+    }
+}
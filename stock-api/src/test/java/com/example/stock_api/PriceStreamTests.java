@@ -0,0 +1,157 @@
+package com.example.stockapi;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "stock.upstream.latency=50ms",
+        "stock.stream.poll-interval=100ms",
+        "stock.snapshot.enabled=false"
+})
+class PriceStreamTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PriceStreamHub hub;
+
+    @Autowired
+    private StockService upstream;
+
+    private static final JsonMapper JSON = JsonMapper.builder().build();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private InputStream open(String symbols) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/stream/prices?symbols=" + symbols)).build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, response.statusCode());
+        assertEquals("text/event-stream;charset=UTF-8", response.headers().firstValue("Content-Type").orElseThrow().replace(" ", ""));
+        return response.body();
+    }
+
+    // Reads events until it has seen `count` AAPL ticks, returns their seq numbers
+    private static List<Long> aaplSeqs(InputStream stream, int count) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        List<Long> seqs = new ArrayList<>();
+        String line;
+        while (seqs.size() < count && (line = reader.readLine()) != null) {
+            if (line.startsWith("data: ")) {
+                JsonNode tick = JSON.readTree(line.substring(6));
+                if (tick.get("symbol").asString().equals("AAPL")) {
+                    seqs.add(tick.get("seq").asLong());
+                }
+            }
+        }
+        return seqs;
+    }
+
+    private void awaitPollers(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && hub.pollers() != expected; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, hub.pollers());
+    }
+
+    @Test
+    void manySubscribersShareOnePollerPerSymbol() throws Exception {
+        long callsBefore = upstream.calls();
+        List<InputStream> streams = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            streams.add(open(i % 2 == 0 ? "AAPL" : "AAPL,MSFT"));
+        }
+
+        ExecutorService readers = Executors.newFixedThreadPool(40);
+        List<Future<List<Long>>> received = new ArrayList<>();
+        for (InputStream stream : streams) {
+            received.add(readers.submit(() -> aaplSeqs(stream, 3)));
+        }
+        for (Future<List<Long>> seqs : received) {
+            List<Long> s = seqs.get();
+            assertEquals(3, s.size());
+            assertTrue(s.get(0) < s.get(1) && s.get(1) < s.get(2)); // In order, never repeated
+        }
+        assertEquals(2, hub.pollers()); // AAPL and MSFT, whatever the number of subscribers
+
+        // Roughly one upstream call per tick of each symbol, not one per subscriber
+        long calls = upstream.calls() - callsBefore;
+        assertTrue(calls < 40, "upstream calls: " + calls);
+
+        for (InputStream stream : streams) {
+            stream.close();
+        }
+        readers.shutdownNow();
+        awaitPollers(0); // The last one out stops the poller (noticed at the next heartbeat or tick write)
+    }
+
+    @Test
+    void aSlowSubscriberOnlyKeepsTheNewestTick() {
+        StockService slowApi = new StockService(Duration.ofSeconds(10));
+        PriceCache cache = new PriceCache(slowApi, Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofSeconds(30), 10, 2);
+        PriceStreamHub isolated = new PriceStreamHub(cache, JSON,
+                Duration.ofSeconds(1), Duration.ofMinutes(1), 10, 1);
+        FakeSocket socket = new FakeSocket();
+        PriceStreamHub.Subscriber subscriber = isolated.subscriber(null, socket, List.of("AAPL", "MSFT"));
+
+        socket.ready = false; // The client stopped reading
+        for (int tick = 1; tick <= 100; tick++) {
+            subscriber.offer("AAPL", tick, ("AAPL " + tick + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        subscriber.offer("MSFT", 1, "MSFT 1\n".getBytes(StandardCharsets.UTF_8));
+        subscriber.offer("AAPL", 100, "AAPL 100 again\n".getBytes(StandardCharsets.UTF_8)); // Not newer: ignored
+        assertEquals(99, isolated.stats().framesDropped()); // Held: one frame per symbol, whatever the backlog
+
+        socket.ready = true; // It reads again
+        subscriber.onWritePossible();
+        String got = socket.written.toString(StandardCharsets.UTF_8);
+        assertTrue(got.contains("AAPL 100\n") && got.contains("MSFT 1\n"));
+        assertEquals(2, got.lines().count());
+
+        isolated.destroy();
+        cache.destroy();
+    }
+
+    private static final class FakeSocket extends ServletOutputStream {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        volatile boolean ready = true;
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+        }
+
+        @Override
+        public void write(int b) {
+            written.write(b);
+        }
+    }
+}
@@ -1,9 +1,9 @@
-package com.example.stock_api;
+package com.example.stockapi;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "stock.snapshot.enabled=false")
 class StockApiApplicationTests {
 
 	@Test
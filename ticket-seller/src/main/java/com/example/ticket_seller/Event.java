@@ -0,0 +1,28 @@
+package com.example.ticket_seller;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// A concert/match/show. Its seats live in StockShard rows, split by category and shard.
+
+@Entity
+@Table(name = "events") // EVENT is a reserved word in some databases
+public class Event {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+    private String name;
+
+    public Event() {}
+
+    public Event(String name) {
+        this.name = name;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getName() { return name; }
+}
@@ -0,0 +1,65 @@
+package com.example.ticket_seller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// Many events at once, each with seat categories (VIP, GA, ...) whose stock is sharded over several rows
+
+@RestController
+public class EventController {
+
+    public record CreateEventRequest(String name, Map<String, Integer> categories, Integer shards) {}
+
+    public record EventStock(Long id, String name, Map<String, Long> stock) {}
+
+    private final EventTicketService eventTicketService;
+
+    public EventController(EventTicketService eventTicketService) {
+        this.eventTicketService = eventTicketService;
+    }
+
+    // Example body: {"name": "Finals", "categories": {"VIP": 500, "GA": 100000}, "shards": 16}
+    @PostMapping("/events")
+    public EventStock createEvent(@RequestBody CreateEventRequest request) {
+        Event event = eventTicketService.createEvent(request.name(), request.categories(), request.shards());
+        return getEvent(event.getId());
+    }
+
+    @GetMapping("/events/{id}")
+    public EventStock getEvent(@PathVariable long id) {
+        Event event = eventTicketService.getEvent(id);
+        return new EventStock(event.getId(), event.getName(), eventTicketService.stockByCategory(id));
+    }
+
+    @PostMapping("/events/{id}/buy")
+    public String buy(@PathVariable long id,
+                      @RequestParam(defaultValue = "GA") String category,
+                      @RequestParam(defaultValue = "1") int qty) {
+        PurchaseResult result = eventTicketService.buy(id, category, qty);
+
+        if (result.success()) {
+            return "Success! Remaining: " + result.remaining();
+        } else {
+            return "Sold Out!";
+        }
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<String> notFound(NoSuchElementException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+    }
+}
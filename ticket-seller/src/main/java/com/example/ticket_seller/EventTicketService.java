@@ -0,0 +1,175 @@
+package com.example.ticket_seller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Multi-event inventory with a sharded stock counter.
+// A category's seats are split over several StockShard rows. Each buyer starts at a random shard
+// and locks only that row, so concurrent buyers of the same event mostly hit different rows.
+// Once a category is sold out, buyers are turned away without taking any lock: after a big on-sale that is
+// most of the traffic, and it must not queue behind the shard locks.
+
+@Service
+public class EventTicketService {
+
+    private record ShardKey(long eventId, String category) {}
+
+    // Shard ids never change after an event is created, so we remember them instead of querying every time
+    private final Map<ShardKey, long[]> shardIds = new ConcurrentHashMap<>();
+
+    // Stock only ever goes down, so a shard seen at 0 is skipped from then on
+    private final Set<Long> emptyShards = ConcurrentHashMap.newKeySet();
+
+    private final EventRepository eventRepository;
+    private final StockShardRepository shardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long simulatedWorkMs;
+    private final int defaultShards;
+
+    public EventTicketService(EventRepository eventRepository,
+                              StockShardRepository shardRepository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${tickets.simulated-work-ms:50}") long simulatedWorkMs,
+                              @Value("${tickets.events.default-shards:8}") int defaultShards) {
+        this.eventRepository = eventRepository;
+        this.shardRepository = shardRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.simulatedWorkMs = simulatedWorkMs;
+        this.defaultShards = defaultShards;
+    }
+
+    // Creates an event and spreads each category's seats as evenly as possible over 'shards' rows
+    public Event createEvent(String name, Map<String, Integer> seatsByCategory, Integer shards) {
+        int shardCount = shards == null ? defaultShards : shards;
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shards must be at least 1");
+        }
+        if (seatsByCategory == null || seatsByCategory.isEmpty()) {
+            throw new IllegalArgumentException("An event needs at least one seat category");
+        }
+
+        return transactionTemplate.execute(status -> {
+            Event event = eventRepository.save(new Event(name));
+            seatsByCategory.forEach((category, seats) -> {
+                if (seats == null || seats < 0) {
+                    throw new IllegalArgumentException("Seats for " + category + " must be >= 0");
+                }
+                for (int i = 0; i < shardCount; i++) {
+                    int shardSeats = seats / shardCount + (i < seats % shardCount ? 1 : 0);
+                    shardRepository.save(new StockShard(event.getId(), category, i, shardSeats));
+                }
+            });
+            return event;
+        });
+    }
+
+    public Event getEvent(long eventId) {
+        return eventRepository.findById(eventId)
+                .orElseThrow(() -> new NoSuchElementException("No event with id " + eventId));
+    }
+
+    public Map<String, Long> stockByCategory(long eventId) {
+        Map<String, Long> stock = new LinkedHashMap<>();
+        for (StockShardRepository.CategoryStock row : shardRepository.sumStockByCategory(eventId)) {
+            stock.put(row.getCategory(), row.getStock());
+        }
+        return stock;
+    }
+
+    public PurchaseResult buy(long eventId, String category, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("qty must be at least 1");
+        }
+        long[] shards = shardsOf(eventId, category);
+
+        // 1. SOLD OUT? Stock only goes down, so a total that is too low without a lock stays too low: no lock needed
+        if (allEmpty(shards)) {
+            return PurchaseResult.soldOut(0);
+        }
+        long left = shardRepository.sumStock(eventId, category);
+        if (left < quantity) {
+            return PurchaseResult.soldOut((int) left);
+        }
+
+        // 2. FAST PATH: one shard that can fill the whole order, starting at a random one
+        int start = ThreadLocalRandom.current().nextInt(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            long shardId = shards[(start + i) % shards.length];
+            if (emptyShards.contains(shardId)) continue;
+            Boolean claimed = transactionTemplate.execute(status -> claimFromShard(shardId, quantity));
+            if (Boolean.TRUE.equals(claimed)) {
+                return PurchaseResult.sold((int) shardRepository.sumStock(eventId, category));
+            }
+        }
+
+        // 3. SLOW PATH: no single shard has enough left, but together they might, so take from several
+        return transactionTemplate.execute(status -> claimAcrossShards(eventId, category, quantity));
+    }
+
+    private boolean claimFromShard(long shardId, int quantity) {
+        StockShard shard = shardRepository.findByIdWithLock(shardId).orElseThrow();
+        if (shard.getStock() < quantity) {
+            if (shard.getStock() == 0) emptyShards.add(shardId);
+            return false;
+        }
+        simulateWork(); // Held under the lock, like the original /buy, but only this shard is blocked
+        shard.setStock(shard.getStock() - quantity);
+        return true;
+    }
+
+    private PurchaseResult claimAcrossShards(long eventId, String category, int quantity) {
+        List<StockShard> all = shardRepository.findAllWithLock(eventId, category);
+        int total = all.stream().mapToInt(StockShard::getStock).sum();
+        if (total < quantity) {
+            return PurchaseResult.soldOut(total);
+        }
+
+        simulateWork();
+        int needed = quantity;
+        for (StockShard shard : all) {
+            int take = Math.min(needed, shard.getStock());
+            shard.setStock(shard.getStock() - take);
+            if (shard.getStock() == 0) emptyShards.add(shard.getId());
+            needed -= take;
+            if (needed == 0) break;
+        }
+        return PurchaseResult.sold(total - quantity);
+    }
+
+    private boolean allEmpty(long[] shards) {
+        for (long shardId : shards) {
+            if (!emptyShards.contains(shardId)) return false;
+        }
+        return true;
+    }
+
+    private long[] shardsOf(long eventId, String category) {
+        ShardKey key = new ShardKey(eventId, category);
+        long[] cached = shardIds.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        // Queried outside the map: computeIfAbsent would hold a lock on other keys for a whole DB round trip.
+        // Two first buyers may both query; the ids never change, so either answer is right.
+        long[] ids = shardRepository.findByEventIdAndCategoryOrderByShardIndex(eventId, category).stream()
+                .mapToLong(StockShard::getId)
+                .toArray();
+        if (ids.length == 0) {
+            throw new NoSuchElementException("Event " + eventId + " has no category " + category);
+        }
+        long[] raced = shardIds.putIfAbsent(key, ids);
+        return raced != null ? raced : ids;
+    }
+
+    private void simulateWork() {
+        try { Thread.sleep(simulatedWorkMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+}
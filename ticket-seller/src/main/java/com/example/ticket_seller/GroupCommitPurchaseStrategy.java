@@ -0,0 +1,239 @@
+package com.example.ticket_seller;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Group commit: instead of 300 buyers each taking the row lock in their own transaction, buyers drop
+// their request in a queue and one batcher thread serves them in micro-batches.
+// Each batch takes the lock ONCE, hands out stock in arrival order, commits, and only then answers each buyer.
+// N lock acquisitions become N / batch size.
+// A buyer waits at most confirm-timeout-ms for the answer, and whatever is still queued on shutdown is failed,
+// so no request thread can hang on a batch that will never run.
+// Giving up and being picked for a batch race for the same entry (QUEUED -> ABANDONED vs QUEUED -> CLAIMED).
+// A buyer that loses keeps waiting: its batch is already running, and a seat is never taken without telling anyone.
+
+@Component
+@ConditionalOnProperty(name = "tickets.purchase.strategy", havingValue = "group-commit")
+public class GroupCommitPurchaseStrategy implements PurchaseStrategy {
+
+    private static final int QUEUED = 0;
+    private static final int CLAIMED = 1;
+    private static final int ABANDONED = 2;
+
+    private record PendingPurchase(long inventoryId, int quantity, CompletableFuture<PurchaseResult> result,
+                                   AtomicInteger state) {
+
+        PendingPurchase(long inventoryId, int quantity) {
+            this(inventoryId, quantity, new CompletableFuture<>(), new AtomicInteger(QUEUED));
+        }
+
+        // The batcher: from here on the buyer waits for this batch's answer
+        boolean claim() {
+            return state.compareAndSet(QUEUED, CLAIMED);
+        }
+
+        // The buyer: only allowed while no batch holds the entry
+        boolean abandon() {
+            return state.compareAndSet(QUEUED, ABANDONED);
+        }
+    }
+
+    private final BlockingQueue<PendingPurchase> queue = new LinkedBlockingQueue<>();
+
+    private final TicketRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final PurchaseMetrics metrics;
+    private final long simulatedWorkMs;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final long confirmTimeoutMs;
+
+    private volatile boolean running = true;
+    private Thread batcher;
+
+    public GroupCommitPurchaseStrategy(TicketRepository repository,
+                                       TransactionTemplate transactionTemplate,
+                                       PurchaseMetrics metrics,
+                                       @Value("${tickets.simulated-work-ms:50}") long simulatedWorkMs,
+                                       @Value("${tickets.group-commit.max-batch-size:200}") int maxBatchSize,
+                                       @Value("${tickets.group-commit.window-ms:5}") long windowMs,
+                                       @Value("${tickets.group-commit.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.simulatedWorkMs = simulatedWorkMs;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    @Override
+    public String name() {
+        return "group-commit";
+    }
+
+    @PostConstruct
+    void start() {
+        batcher = new Thread(this::batchLoop, "purchase-batcher");
+        batcher.setDaemon(true);
+        batcher.start();
+    }
+
+    @Override
+    public PurchaseResult purchase(long inventoryId, int quantity) {
+        // The "slow" part of a purchase happens on the caller's thread, outside the batch and the lock
+        try { Thread.sleep(simulatedWorkMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+
+        if (!running) {
+            throw new IllegalStateException("Purchase pipeline is shutting down");
+        }
+        PendingPurchase pending = new PendingPurchase(inventoryId, quantity);
+        queue.add(pending);
+        try {
+            return pending.result().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw failure(e.getCause());
+        } catch (TimeoutException e) {
+            if (pending.abandon()) {
+                throw new IllegalStateException("Purchase not confirmed within " + confirmTimeoutMs + " ms", e);
+            }
+            return awaitBatch(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pending.abandon()) {
+                throw new IllegalStateException("Interrupted while waiting for the purchase", e);
+            }
+            return awaitBatch(pending);
+        }
+    }
+
+    // Claimed: the batch commits or fails as a whole, and either way it answers this buyer
+    private PurchaseResult awaitBatch(PendingPurchase pending) {
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            throw failure(e.getCause());
+        }
+    }
+
+    private static RuntimeException failure(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) return runtime;
+        return new IllegalStateException("Purchase failed", cause);
+    }
+
+    private void batchLoop() {
+        List<PendingPurchase> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPurchase first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // Collect until the batch is full or the window closes (whichever comes first)
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    PendingPurchase next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                queue.drainTo(batch, maxBatchSize - batch.size());
+
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // The transaction failed: nobody in this batch got a ticket
+                batch.forEach(p -> p.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<PendingPurchase> batch) {
+        Map<Long, List<PendingPurchase>> byInventory = new LinkedHashMap<>();
+        for (PendingPurchase p : batch) {
+            if (!p.claim()) continue; // The buyer already gave up
+            byInventory.computeIfAbsent(p.inventoryId(), id -> new ArrayList<>()).add(p);
+        }
+
+        List<PurchaseResult> answers = new ArrayList<>(batch.size());
+        List<PendingPurchase> order = new ArrayList<>(batch.size());
+        List<Long> unknown = new ArrayList<>();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            answers.clear();
+            order.clear();
+            unknown.clear();
+            for (Map.Entry<Long, List<PendingPurchase>> group : byInventory.entrySet()) {
+                // 1. ONE lock for the whole group
+                long start = System.nanoTime();
+                Optional<TicketInventory> found = repository.findByIdWithLock(group.getKey());
+                metrics.lockWait(name(), System.nanoTime() - start);
+                if (found.isEmpty()) {
+                    unknown.add(group.getKey()); // Only this group fails, the other buyers in the batch are served
+                    continue;
+                }
+                TicketInventory inventory = found.get();
+
+                // 2. Allocate in arrival order; a large order that does not fit does not block smaller ones
+                int stock = inventory.getStock();
+                for (PendingPurchase p : group.getValue()) {
+                    if (stock >= p.quantity()) {
+                        stock -= p.quantity();
+                        answers.add(PurchaseResult.sold(stock));
+                    } else {
+                        answers.add(PurchaseResult.soldOut(stock));
+                    }
+                    order.add(p);
+                    metrics.attempt(name(), false);
+                }
+
+                // 3. ONE write for the whole group
+                inventory.setStock(stock);
+                repository.save(inventory);
+            }
+        });
+
+        // 4. Answer buyers only after the commit, so a "Success!" is always durable
+        for (int i = 0; i < order.size(); i++) {
+            order.get(i).result().complete(answers.get(i));
+        }
+        for (Long inventoryId : unknown) {
+            NoSuchElementException e = new NoSuchElementException("No inventory with id " + inventoryId);
+            byInventory.get(inventoryId).forEach(p -> p.result().completeExceptionally(e));
+        }
+    }
+
+    // Buyers still queued after the batcher stopped get an error instead of waiting for their timeout
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        batcher.join(TimeUnit.SECONDS.toMillis(10));
+        List<PendingPurchase> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        IllegalStateException e = new IllegalStateException("Purchase pipeline is shutting down");
+        leftover.forEach(p -> p.result().completeExceptionally(e));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.ticket_seller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lock-free selling: the stock lives in an AtomicInteger per inventory row and is decremented with
+// compare-and-set, so buyers never wait for a database lock. "Sold Out!" is answered from memory.
+// The database stays the source of truth for restarts: the counter is loaded from TicketInventory.stock,
+// which SalesWriteBehind keeps equal to "initial stock minus every persisted sale".
+// A buyer only hears "Success!" after SalesWriteBehind has committed the sale, so after a crash
+// every confirmed sale is in that stock and no seat can be sold twice.
+
+@Component
+@ConditionalOnProperty(name = "tickets.purchase.strategy", havingValue = "in-memory")
+public class InMemoryPurchaseStrategy implements PurchaseStrategy {
+
+    private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+
+    private final TicketRepository repository;
+    private final SalesWriteBehind writeBehind;
+    private final PurchaseMetrics metrics;
+    private final long simulatedWorkMs;
+    private final long confirmTimeoutMs;
+
+    public InMemoryPurchaseStrategy(TicketRepository repository,
+                                    SalesWriteBehind writeBehind,
+                                    PurchaseMetrics metrics,
+                                    @Value("${tickets.simulated-work-ms:50}") long simulatedWorkMs,
+                                    @Value("${tickets.write-behind.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.repository = repository;
+        this.writeBehind = writeBehind;
+        this.metrics = metrics;
+        this.simulatedWorkMs = simulatedWorkMs;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    @Override
+    public String name() {
+        return "in-memory";
+    }
+
+    // Warm every counter once the app (and the stock reset in TicketController) is ready
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInventory() {
+        for (TicketInventory inventory : repository.findAll()) {
+            available.putIfAbsent(inventory.getId(), new AtomicInteger(inventory.getStock()));
+        }
+    }
+
+    @Override
+    public PurchaseResult purchase(long inventoryId, int quantity) {
+        AtomicInteger stock = available.get(inventoryId);
+        if (stock == null) {
+            // Query first, then publish: a query inside computeIfAbsent would hold the map's bin lock meanwhile
+            int persisted = repository.findById(inventoryId).orElseThrow().getStock();
+            stock = available.computeIfAbsent(inventoryId, id -> new AtomicInteger(persisted));
+        }
+
+        // 1. FAST FAIL: no DB, no lock, no simulated work
+        if (stock.get() < quantity) {
+            return PurchaseResult.soldOut(stock.get());
+        }
+
+        // 2. The "slow" part of a purchase happens while holding nothing
+        try { Thread.sleep(simulatedWorkMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+
+        // 3. CLAIM: compare-and-set retries until we win or the stock runs out. Never goes below zero.
+        for (int retries = 0; ; retries++) {
+            int current = stock.get();
+            if (current < quantity) {
+                metrics.retries(name(), retries);
+                return PurchaseResult.soldOut(current);
+            }
+            boolean won = stock.compareAndSet(current, current - quantity);
+            metrics.attempt(name(), !won);
+            if (won) {
+                metrics.retries(name(), retries);
+                awaitWritten(stock, new TicketSale(inventoryId, quantity, Instant.now()));
+                return PurchaseResult.sold(current - quantity);
+            }
+        }
+    }
+
+    // 4. CONFIRM: answer only once the sale is committed
+    private void awaitWritten(AtomicInteger stock, TicketSale sale) {
+        try {
+            writeBehind.submit(sale).get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // Definitely not written: the seat goes back on sale
+            stock.addAndGet(sale.getQuantity());
+            throw new IllegalStateException("Sale could not be saved", e.getCause());
+        } catch (TimeoutException e) {
+            // Maybe written later, maybe not: keep the seat off sale (never oversell). A restart recounts it.
+            throw new IllegalStateException("Sale not confirmed within " + confirmTimeoutMs + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while confirming the sale", e);
+        }
+    }
+}
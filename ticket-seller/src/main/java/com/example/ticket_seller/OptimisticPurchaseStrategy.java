@@ -0,0 +1,112 @@
+package com.example.ticket_seller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Optimistic locking: nobody holds a lock while doing the slow part of a purchase.
+//   1. READ stock + version (no lock)
+//   2. WORK (the simulated 50ms) while holding nothing
+//   3. WRITE "stock = stock - n WHERE version = <what we read>" in a tiny transaction
+// If another buyer wrote first, 0 rows change: re-read and try again after a short random pause,
+// so the losers of one race do not all collide again on the next attempt.
+
+@Component
+@ConditionalOnProperty(name = "tickets.purchase.strategy", havingValue = "optimistic")
+public class OptimisticPurchaseStrategy implements PurchaseStrategy {
+
+    private final TicketRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final PurchaseMetrics metrics;
+    private final long simulatedWorkMs;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+
+    public OptimisticPurchaseStrategy(TicketRepository repository,
+                                      TransactionTemplate transactionTemplate,
+                                      PurchaseMetrics metrics,
+                                      @Value("${tickets.simulated-work-ms:50}") long simulatedWorkMs,
+                                      @Value("${tickets.optimistic.max-attempts:20}") int maxAttempts,
+                                      @Value("${tickets.optimistic.base-backoff-ms:1}") long baseBackoffMs,
+                                      @Value("${tickets.optimistic.max-backoff-ms:50}") long maxBackoffMs) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.simulatedWorkMs = simulatedWorkMs;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    @Override
+    public String name() {
+        return "optimistic";
+    }
+
+    @Override
+    public PurchaseResult purchase(long inventoryId, int quantity) {
+        // 1. READ (no lock). Sold out already? Then skip the work entirely.
+        TicketRepository.StockVersion seen = read(inventoryId);
+        if (seen.getStock() < quantity) {
+            return PurchaseResult.soldOut(seen.getStock());
+        }
+
+        // 2. WORK while holding nothing
+        try { Thread.sleep(simulatedWorkMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+
+        for (int attempt = 1; ; attempt++) {
+            if (attempt > 1) {
+                seen = read(inventoryId);
+                if (seen.getStock() < quantity) {
+                    metrics.retries(name(), attempt - 1);
+                    return PurchaseResult.soldOut(seen.getStock());
+                }
+            }
+
+            // 3. WRITE only if nobody else did since our read
+            if (tryClaim(inventoryId, quantity, seen.getVersion())) {
+                metrics.retries(name(), attempt - 1);
+                return PurchaseResult.sold(seen.getStock() - quantity);
+            }
+
+            if (attempt == maxAttempts) {
+                metrics.retries(name(), attempt - 1);
+                throw new OptimisticLockingFailureException(
+                        "Inventory " + inventoryId + " changed under us " + maxAttempts + " times, giving up");
+            }
+            backoff(attempt);
+        }
+    }
+
+    private TicketRepository.StockVersion read(long inventoryId) {
+        return repository.findStockVersion(inventoryId).orElseThrow();
+    }
+
+    private boolean tryClaim(long inventoryId, int quantity, Long version) {
+        long start = System.nanoTime();
+        boolean won;
+        try {
+            Integer updated = transactionTemplate.execute(
+                    status -> repository.decrementStockIfUnchanged(inventoryId, quantity, version));
+            won = updated != null && updated == 1;
+        } catch (ConcurrencyFailureException e) {
+            // The database refused the concurrent write itself (lock timeout etc.): same as losing the race
+            won = false;
+        }
+        metrics.lockWait(name(), System.nanoTime() - start);
+        metrics.attempt(name(), !won);
+        return won;
+    }
+
+    // "Full jitter": sleep a random time between 0 and an exponentially growing cap
+    private void backoff(int attempt) {
+        long cap = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        long sleepMs = ThreadLocalRandom.current().nextLong(cap + 1);
+        try { Thread.sleep(sleepMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.ticket_seller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+// The original fix: SELECT ... FOR UPDATE. Correct, but every buyer waits in line for the same row lock.
+
+@Component
+@ConditionalOnProperty(name = "tickets.purchase.strategy", havingValue = "pessimistic", matchIfMissing = true)
+public class PessimisticPurchaseStrategy implements PurchaseStrategy {
+
+    private final TicketRepository repository;
+    private final PurchaseMetrics metrics;
+    private final long simulatedWorkMs;
+
+    public PessimisticPurchaseStrategy(TicketRepository repository,
+                                       PurchaseMetrics metrics,
+                                       @Value("${tickets.simulated-work-ms:50}") long simulatedWorkMs) {
+        this.repository = repository;
+        this.metrics = metrics;
+        this.simulatedWorkMs = simulatedWorkMs;
+    }
+
+    @Override
+    public String name() {
+        return "pessimistic";
+    }
+
+    @Override
+    @Transactional // CRITICAL: Keeps the lock active until the method ends
+    public PurchaseResult purchase(long inventoryId, int quantity) {
+        // 1. READ with LOCK (Others must wait here now)
+        long start = System.nanoTime();
+        TicketInventory inventory = repository.findByIdWithLock(inventoryId).orElseThrow();
+        metrics.lockWait(name(), System.nanoTime() - start);
+        metrics.attempt(name(), false); // Waiting in line is never a conflict, it is just slow
+
+        // 2. CHECK
+        if (inventory.getStock() >= quantity) {
+            try { Thread.sleep(simulatedWorkMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+
+            // 3. WRITE
+            inventory.setStock(inventory.getStock() - quantity);
+            repository.save(inventory);
+
+            return PurchaseResult.sold(inventory.getStock());
+        } else {
+            return PurchaseResult.soldOut(inventory.getStock());
+        }
+    }
+}
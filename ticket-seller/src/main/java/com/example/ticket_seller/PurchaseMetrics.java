@@ -0,0 +1,87 @@
+package com.example.ticket_seller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// The numbers needed to pick a strategy for a real contention profile, all tagged with strategy=<name>:
+//   tickets.purchase            end-to-end latency of a purchase (also tagged outcome=sold/sold-out/failed)
+//   tickets.purchase.lock.wait  time spent getting the row lock (or the conditional UPDATE)
+//   tickets.purchase.attempts   claim attempts, and tickets.purchase.conflicts = attempts that lost a race
+//                               (conflict rate = conflicts / attempts)
+//   tickets.purchase.retries    retries needed per purchase
+// Browse them at /actuator/metrics/tickets.purchase?tag=strategy:optimistic
+// The meters are registered once per strategy and kept: a purchase only records, it never looks up or builds a meter.
+
+@Component
+public class PurchaseMetrics {
+
+    private record StrategyMeters(Timer sold, Timer soldOut, Timer failed, Timer lockWait,
+                                  Counter attempts, Counter conflicts, DistributionSummary retries) {}
+
+    private final MeterRegistry registry;
+    private final Map<String, StrategyMeters> meters = new ConcurrentHashMap<>();
+
+    public PurchaseMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public PurchaseResult time(String strategy, Supplier<PurchaseResult> purchase) {
+        StrategyMeters m = meters(strategy);
+        long start = System.nanoTime();
+        Timer outcome = m.failed();
+        try {
+            PurchaseResult result = purchase.get();
+            outcome = result.success() ? m.sold() : m.soldOut();
+            return result;
+        } finally {
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void lockWait(String strategy, long nanos) {
+        meters(strategy).lockWait().record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void attempt(String strategy, boolean conflict) {
+        StrategyMeters m = meters(strategy);
+        m.attempts().increment();
+        if (conflict) {
+            m.conflicts().increment();
+        }
+    }
+
+    public void retries(String strategy, int retries) {
+        meters(strategy).retries().record(retries);
+    }
+
+    private StrategyMeters meters(String strategy) {
+        StrategyMeters m = meters.get(strategy);
+        return m != null ? m : meters.computeIfAbsent(strategy, this::register);
+    }
+
+    private StrategyMeters register(String strategy) {
+        return new StrategyMeters(
+                purchaseTimer(strategy, "sold"),
+                purchaseTimer(strategy, "sold-out"),
+                purchaseTimer(strategy, "failed"),
+                Timer.builder("tickets.purchase.lock.wait").tag("strategy", strategy).register(registry),
+                Counter.builder("tickets.purchase.attempts").tag("strategy", strategy).register(registry),
+                Counter.builder("tickets.purchase.conflicts").tag("strategy", strategy).register(registry),
+                DistributionSummary.builder("tickets.purchase.retries").tag("strategy", strategy).register(registry));
+    }
+
+    private Timer purchaseTimer(String strategy, String outcome) {
+        return Timer.builder("tickets.purchase")
+                .tag("strategy", strategy)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.ticket_seller;
+
+// The answer every purchase strategy gives back to the controller
+
+public record PurchaseResult(boolean success, int remaining) {
+
+    public static PurchaseResult sold(int remaining) {
+        return new PurchaseResult(true, remaining);
+    }
+
+    public static PurchaseResult soldOut(int remaining) {
+        return new PurchaseResult(false, remaining);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.ticket_seller;
+
+// One way of selling tickets. Exactly one implementation is active, picked by tickets.purchase.strategy.
+
+public interface PurchaseStrategy {
+
+    // Short name used in config and logs (e.g. "pessimistic")
+    String name();
+
+    // Tries to take 'quantity' tickets from the given inventory row. Must never oversell.
+    PurchaseResult purchase(long inventoryId, int quantity);
+}
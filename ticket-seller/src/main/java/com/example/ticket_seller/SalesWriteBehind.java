@@ -0,0 +1,168 @@
+package com.example.ticket_seller;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Write-behind for the in-memory strategy: the in-memory counter decides who gets a ticket,
+// and one background thread writes those sales to H2 in batches (a group commit of sales).
+// Each batch inserts the TicketSale rows AND subtracts their total from TicketInventory.stock in the
+// same transaction, so the stored stock is always "initial stock minus every persisted sale".
+// submit() returns a future that completes only after that commit: a buyer is told "Success!" once the
+// sale is durable, never before. A sale that was queued but not committed when the process died was never
+// confirmed to anyone, so reloading the counter from the stored stock gives those seats back, correctly.
+
+@Component
+@ConditionalOnProperty(name = "tickets.purchase.strategy", havingValue = "in-memory")
+public class SalesWriteBehind {
+
+    private record PendingSale(TicketSale sale, CompletableFuture<Void> written) {}
+
+    private final BlockingQueue<PendingSale> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong pending = new AtomicLong(); // Queued + currently being written
+
+    private final TicketRepository inventoryRepository;
+    private final TicketSaleRepository saleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public SalesWriteBehind(TicketRepository inventoryRepository,
+                            TicketSaleRepository saleRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${tickets.write-behind.max-batch-size:500}") int maxBatchSize,
+                            @Value("${tickets.write-behind.flush-interval-ms:20}") long flushIntervalMs,
+                            @Value("${tickets.write-behind.max-attempts:5}") int maxAttempts) {
+        this.inventoryRepository = inventoryRepository;
+        this.saleRepository = saleRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PostConstruct
+    void start() {
+        writer = new Thread(this::writeLoop, "sales-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Completes once the sale is committed, or exceptionally if it could not be written
+    public CompletableFuture<Void> submit(TicketSale sale) {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        if (!running) {
+            written.completeExceptionally(new IllegalStateException("Sales writer is shutting down"));
+            return written;
+        }
+        pending.incrementAndGet();
+        queue.add(new PendingSale(sale, written));
+        return written;
+    }
+
+    public long pendingSales() {
+        return pending.get();
+    }
+
+    // Blocks until everything submitted so far is in the database (used on shutdown and in tests)
+    public boolean awaitFlushed(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        List<PendingSale> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingSale first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                // Everything that piled up while the previous batch was being written goes in one transaction
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                persistWithRetry(batch);
+                batch.forEach(p -> p.written().complete(null));
+            } catch (InterruptedException e) {
+                fail(batch, e);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Out of attempts: these buyers are told their purchase failed, and get their seat back
+                fail(batch, e);
+            } finally {
+                pending.addAndGet(-batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void persistWithRetry(List<PendingSale> batch) throws InterruptedException {
+        List<TicketSale> sales = batch.stream().map(PendingSale::sale).toList();
+        long backoffMs = 10;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                persist(sales);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                System.out.println("⚠️ Write-behind batch of " + batch.size() + " failed, retrying: " + e.getMessage());
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, 1_000);
+            }
+        }
+    }
+
+    private static void fail(List<PendingSale> batch, Throwable cause) {
+        batch.forEach(p -> p.written().completeExceptionally(cause));
+    }
+
+    private void persist(List<TicketSale> batch) {
+        Map<Long, Integer> soldPerInventory = new TreeMap<>();
+        for (TicketSale sale : batch) {
+            soldPerInventory.merge(sale.getInventoryId(), sale.getQuantity(), Integer::sum);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            saleRepository.saveAll(batch);
+            soldPerInventory.forEach(inventoryRepository::decrementStock);
+        });
+    }
+
+    // No interrupt(): the poll timeout lets the loop notice 'running', and a half-written JDBC call stays intact.
+    // Whatever is still queued after that was never confirmed: those buyers get an error instead of a hang.
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        List<PendingSale> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            System.out.println("⚠️ Shutting down: " + leftover.size() + " unconfirmed sales were not written");
+            pending.addAndGet(-leftover.size());
+            fail(leftover, new IllegalStateException("Sales writer is shutting down"));
+        }
+    }
+}
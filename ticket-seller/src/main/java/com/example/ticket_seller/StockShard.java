@@ -0,0 +1,40 @@
+package com.example.ticket_seller;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+// One slice of an event category's stock. 100,000 GA seats over 16 shards = 16 rows of 6,250,
+// so 16 buyers can each lock a different row instead of queueing for one.
+
+@Entity
+@Table(indexes = @Index(name = "idx_shard_event_category", columnList = "eventId, category"))
+public class StockShard {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+    private Long eventId;
+    private String category;
+    private int shardIndex;
+    private int stock;
+
+    public StockShard() {}
+
+    public StockShard(Long eventId, String category, int shardIndex, int stock) {
+        this.eventId = eventId;
+        this.category = category;
+        this.shardIndex = shardIndex;
+        this.stock = stock;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public Long getEventId() { return eventId; }
+    public String getCategory() { return category; }
+    public int getShardIndex() { return shardIndex; }
+    public int getStock() { return stock; }
+    public void setStock(int stock) { this.stock = stock; }
+}
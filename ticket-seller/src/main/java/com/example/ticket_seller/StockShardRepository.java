@@ -0,0 +1,39 @@
+package com.example.ticket_seller;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockShardRepository extends JpaRepository<StockShard, Long> {
+
+    List<StockShard> findByEventIdAndCategoryOrderByShardIndex(Long eventId, String category);
+
+    // Locks ONE shard: buyers on other shards of the same event are not blocked
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StockShard s WHERE s.id = :id")
+    Optional<StockShard> findByIdWithLock(@Param("id") Long id);
+
+    // Locks every shard of a category, always in id order so two buyers can never deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StockShard s WHERE s.eventId = :eventId AND s.category = :category ORDER BY s.id")
+    List<StockShard> findAllWithLock(@Param("eventId") Long eventId, @Param("category") String category);
+
+    // Reads never lock: the stock of a category is the sum of its shards
+    @Query("SELECT s.category AS category, SUM(s.stock) AS stock FROM StockShard s "
+            + "WHERE s.eventId = :eventId GROUP BY s.category ORDER BY s.category")
+    List<CategoryStock> sumStockByCategory(@Param("eventId") Long eventId);
+
+    @Query("SELECT COALESCE(SUM(s.stock), 0) FROM StockShard s WHERE s.eventId = :eventId AND s.category = :category")
+    long sumStock(@Param("eventId") Long eventId, @Param("category") String category);
+
+    interface CategoryStock {
+        String getCategory();
+        Long getStock();
+    }
+}
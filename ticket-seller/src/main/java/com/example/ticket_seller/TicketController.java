@@ -1,37 +1,56 @@
 package com.example.ticket_seller;
 
-import org.springframework.transaction.annotation.Transactional; // Import this!
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class TicketController {
 
-    private final TicketRepository repository;
+    private final PurchaseStrategy purchaseStrategy;
+    private final PurchaseMetrics metrics;
 
-    public TicketController(TicketRepository repository) {
-        this.repository = repository;
-        // Reset stock to 100 on restart
-        repository.save(new TicketInventory(1L, 100));
+    public TicketController(TicketRepository repository,
+                            PurchaseStrategy purchaseStrategy,
+                            PurchaseMetrics metrics,
+                            @Value("${tickets.reset-stock-on-startup:true}") boolean resetStock,
+                            @Value("${tickets.initial-stock:100}") int initialStock) {
+        this.purchaseStrategy = purchaseStrategy;
+        this.metrics = metrics;
+        // Reset stock to 100 on restart (turn this off to see the stock survive a restart on a file DB)
+        if (resetStock) {
+            // Update the row in place if it survived: with @Version, saving a new object always INSERTs
+            TicketInventory inventory = repository.findById(1L).orElseGet(() -> new TicketInventory(1L, initialStock));
+            inventory.setStock(initialStock);
+            repository.save(inventory);
+        }
     }
 
     @PostMapping("/buy")
-    @Transactional // CRITICAL: Keeps the lock active until the method ends
     public String buyTicket() {
-        // 1. READ with LOCK (Others must wait here now)
-        TicketInventory inventory = repository.findByIdWithLock(1L).orElseThrow();
+        // The locking/claiming logic lives in the active PurchaseStrategy (tickets.purchase.strategy)
+        PurchaseResult result = metrics.time(purchaseStrategy.name(), () -> purchaseStrategy.purchase(1L, 1));
 
-        // 2. CHECK
-        if (inventory.getStock() > 0) {
-            try { Thread.sleep(50); } catch (Exception e) {} 
-
-            // 3. WRITE
-            inventory.setStock(inventory.getStock() - 1);
-            repository.save(inventory);
-            
-            return "Success! Remaining: " + inventory.getStock();
+        if (result.success()) {
+            return "Success! Remaining: " + result.remaining();
         } else {
             return "Sold Out!";
         }
     }
-}
\ No newline at end of file
+
+    // Only the optimistic strategy throws this: it lost the race tickets.optimistic.max-attempts times in a row
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> tooMuchContention(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Too many buyers right now, please retry.");
+    }
+
+    // The sale could not be confirmed as saved (in-memory / group-commit): the buyer did NOT get a ticket
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> notConfirmed(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Purchase not confirmed, please retry.");
+    }
+}
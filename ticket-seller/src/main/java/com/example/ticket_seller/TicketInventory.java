@@ -2,6 +2,7 @@ package com.example.ticket_seller;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 
 // A table to hold ticket count
 
@@ -12,6 +13,10 @@ public class TicketInventory {
     private Long id;
     private int stock;
 
+    // Bumped on every write. The optimistic strategy only writes if nobody else did since it read.
+    @Version
+    private Long version;
+
     public TicketInventory() {}
 
     public TicketInventory(Long id, int stock) {
@@ -20,6 +25,8 @@ public class TicketInventory {
     }
 
     // Getters and Setters
+    public Long getId() { return id; }
     public int getStock() { return stock; }
+    public Long getVersion() { return version; }
     public void setStock(int stock) { this.stock = stock; }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.example.ticket_seller;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,4 +15,24 @@ public interface TicketRepository extends JpaRepository<TicketInventory, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE) // 🔒 This is the magic key
     @Query("SELECT t FROM TicketInventory t WHERE t.id = :id")
     Optional<TicketInventory> findByIdWithLock(@Param("id") Long id);
+
+    // Applies many sales in one statement (used by the write-behind batches)
+    @Modifying
+    @Query("UPDATE TicketInventory t SET t.stock = t.stock - :quantity, t.version = t.version + 1 WHERE t.id = :id")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Plain read, no lock. A projection (not the entity) so every call really goes to the database.
+    @Query("SELECT t.stock AS stock, t.version AS version FROM TicketInventory t WHERE t.id = :id")
+    Optional<StockVersion> findStockVersion(@Param("id") Long id);
+
+    // Optimistic write: only succeeds (returns 1) if the row still has the version we read
+    @Modifying
+    @Query("UPDATE TicketInventory t SET t.stock = t.stock - :quantity, t.version = t.version + 1 "
+            + "WHERE t.id = :id AND t.version = :version AND t.stock >= :quantity")
+    int decrementStockIfUnchanged(@Param("id") Long id, @Param("quantity") int quantity, @Param("version") Long version);
+
+    interface StockVersion {
+        int getStock();
+        Long getVersion();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.example.ticket_seller;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import java.time.Instant;
+
+// One confirmed sale. Written in batches by SalesWriteBehind when the in-memory strategy is active.
+
+@Entity
+public class TicketSale {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+    private Long inventoryId;
+    private int quantity;
+    private Instant soldAt;
+
+    public TicketSale() {}
+
+    public TicketSale(Long inventoryId, int quantity, Instant soldAt) {
+        this.inventoryId = inventoryId;
+        this.quantity = quantity;
+        this.soldAt = soldAt;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public Long getInventoryId() { return inventoryId; }
+    public int getQuantity() { return quantity; }
+    public Instant getSoldAt() { return soldAt; }
+}
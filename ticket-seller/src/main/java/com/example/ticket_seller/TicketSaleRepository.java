@@ -0,0 +1,13 @@
+package com.example.ticket_seller;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TicketSaleRepository extends JpaRepository<TicketSale, Long> {
+
+    @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM TicketSale s WHERE s.inventoryId = :inventoryId")
+    long sumQuantityByInventoryId(@Param("inventoryId") Long inventoryId);
+}
@@ -1,32 +1,165 @@
-package com.example.ticketseller;
+package com.example.ticket_seller;
 
-import org.junit.jupiter.api.Test; // Import JUnit
-import org.springframework.web.client.RestTemplate;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
-public class ConcurrencyTest {
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
-    @Test // <--- CHANGED: This is now a Test, not a Main method
-    public void testConcurrency() throws InterruptedException {
-        ExecutorService executor = Executors.newFixedThreadPool(200);
-        RestTemplate restTemplate = new RestTemplate();
+// The "attack" test, self-contained: for each purchase strategy it starts the whole app on a random port,
+// sends thousands of concurrent POST /buy requests over real HTTP and then checks that every seat was
+// sold exactly once (no oversell, no lost sale). Throughput and latency percentiles are printed per strategy.
+//
+// Tune it (and turn it into a performance gate) with system properties, e.g.
+//   mvn test -Dtest=ConcurrencyTest -Dharness.buyers=5000 -Dharness.stock=2000 \
+//            -Dharness.min-throughput.pessimistic=100 -Dharness.max-p99-ms.in-memory=250
+// A threshold that is not set is only reported, never enforced.
 
-        System.out.println("--- STARTING TICKET SALE (100 SEATS) ---");
+@Isolated // Keep other tests from stealing CPU while we measure
+class ConcurrencyTest {
 
-        for (int i = 0; i < 200; i++) {
-            executor.submit(() -> {
-                try {
-                    restTemplate.postForObject("http://localhost:8080/buy", null, String.class);
-                } catch (Exception e) {
-                    // Ignore errors
+    private static final int BUYERS = Integer.getInteger("harness.buyers", 2000);
+    private static final int STOCK = Integer.getInteger("harness.stock", 500);
+    private static final int CLIENTS = Integer.getInteger("harness.clients", 100);
+    private static final int WORK_MS = Integer.getInteger("harness.work-ms", 5);
+
+    private record Report(String strategy, int sold, int soldOut, long elapsedMs, double salesPerSecond,
+                          long p50Ms, long p90Ms, long p99Ms, long maxMs) {}
+
+    private static final Map<String, Report> reports = new TreeMap<>();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"pessimistic", "optimistic", "in-memory", "group-commit"})
+    void everySeatIsSoldExactlyOnce(String strategy) throws Exception {
+        try (ConfigurableApplicationContext app = start(strategy)) {
+            String url = "http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/buy";
+
+            // 1. ATTACK: BUYERS purchases from CLIENTS concurrent connections
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+
+            ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>(BUYERS);
+            long[] latencies = new long[BUYERS];
+            long start = System.nanoTime();
+            for (int i = 0; i < BUYERS; i++) {
+                int buyer = i;
+                responses.add(pool.submit(() -> {
+                    long sent = System.nanoTime();
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    latencies[buyer] = System.nanoTime() - sent;
+                    return response;
+                }));
+            }
+
+            // 2. COUNT: every "Success! Remaining: N" must name a different seat
+            BitSet remainingSeen = new BitSet(STOCK);
+            int sold = 0;
+            int soldOut = 0;
+            for (Future<HttpResponse<String>> future : responses) {
+                HttpResponse<String> response = future.get(); // A connection error fails the test, it is not ignored
+                assertEquals(200, response.statusCode(), strategy + ": " + response.body());
+                String body = response.body();
+                if (body.startsWith("Success! Remaining: ")) {
+                    int remaining = Integer.parseInt(body.substring("Success! Remaining: ".length()));
+                    assertTrue(remaining >= 0 && remaining < STOCK, strategy + " reported remaining " + remaining);
+                    assertFalse(remainingSeen.get(remaining), strategy + " sold the seat at remaining=" + remaining + " twice");
+                    remainingSeen.set(remaining);
+                    sold++;
+                } else {
+                    assertEquals("Sold Out!", body);
+                    soldOut++;
                 }
-            });
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            pool.shutdown();
+
+            // 3. VERIFY: no oversell, nothing left unsold, and the database agrees with what buyers were told
+            assertEquals(STOCK, sold, strategy + ": every seat must be sold exactly once");
+            assertEquals(BUYERS - STOCK, soldOut);
+            if (strategy.equals("in-memory")) {
+                assertTrue(app.getBean(SalesWriteBehind.class).awaitFlushed(Duration.ofSeconds(30)));
+                assertEquals(sold, app.getBean(TicketSaleRepository.class).sumQuantityByInventoryId(1L),
+                        "in-memory: a confirmed sale was never written");
+            }
+            assertEquals(0, app.getBean(TicketRepository.class).findById(1L).orElseThrow().getStock());
+
+            Report report = report(strategy, sold, soldOut, elapsedNanos, latencies);
+            reports.put(strategy, report);
+            enforceThresholds(report);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String strategy) {
+        // Passed as command-line args so they win over application.properties
+        return new SpringApplicationBuilder(TicketSellerApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:harness-" + strategy + ";LOCK_TIMEOUT=30000",
+                "--spring.datasource.hikari.maximum-pool-size=" + Math.min(CLIENTS, 50),
+                "--server.tomcat.threads.max=" + Math.max(CLIENTS, 200),
+                "--tickets.purchase.strategy=" + strategy,
+                "--tickets.simulated-work-ms=" + WORK_MS,
+                "--tickets.initial-stock=" + STOCK,
+                "--tickets.optimistic.max-attempts=1000" // A 409 would be a lost buyer, not a lost seat; keep everyone trying
+        );
+    }
+
+    private static Report report(String strategy, int sold, int soldOut, long elapsedNanos, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        long elapsedMs = elapsedNanos / 1_000_000;
+        return new Report(strategy, sold, soldOut, elapsedMs, sold * 1e9 / elapsedNanos,
+                percentileMs(sorted, 50), percentileMs(sorted, 90), percentileMs(sorted, 99), sorted[sorted.length - 1] / 1_000_000);
+    }
+
+    private static long percentileMs(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000;
+    }
+
+    private static void enforceThresholds(Report report) {
+        String minThroughput = System.getProperty("harness.min-throughput." + report.strategy());
+        if (minThroughput != null) {
+            assertTrue(report.salesPerSecond() >= Double.parseDouble(minThroughput),
+                    report.strategy() + " sold " + Math.round(report.salesPerSecond()) + "/s, gate is " + minThroughput + "/s");
+        }
+        String maxP99 = System.getProperty("harness.max-p99-ms." + report.strategy());
+        if (maxP99 != null) {
+            assertTrue(report.p99Ms() <= Long.parseLong(maxP99),
+                    report.strategy() + " p99 was " + report.p99Ms() + "ms, gate is " + maxP99 + "ms");
         }
+    }
 
-        executor.shutdown();
-        executor.awaitTermination(10, TimeUnit.SECONDS);
-        System.out.println("--- SALE FINISHED. CHECK H2 CONSOLE ---");
+    @AfterAll
+    static void printReport() {
+        System.out.printf("%n--- %d BUYERS, %d SEATS, %d CLIENTS, %dms WORK ---%n", BUYERS, STOCK, CLIENTS, WORK_MS);
+        System.out.printf("%-13s %6s %9s %9s %9s %7s %7s %7s %7s%n",
+                "strategy", "sold", "sold-out", "time(ms)", "sales/s", "p50", "p90", "p99", "max");
+        for (Report r : reports.values()) {
+            System.out.printf("%-13s %6d %9d %9d %9.0f %5dms %5dms %5dms %5dms%n", r.strategy(), r.sold(), r.soldOut(),
+                    r.elapsedMs(), r.salesPerSecond(), r.p50Ms(), r.p90Ms(), r.p99Ms(), r.maxMs());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package com.example.ticket_seller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "tickets.simulated-work-ms=5", // Work done while holding a shard lock
+        "spring.datasource.hikari.maximum-pool-size=40",
+        "spring.datasource.url=jdbc:h2:mem:event-sharding;LOCK_TIMEOUT=30000"
+})
+class EventShardingTests {
+
+    private static final int SEATS = 400;
+    private static final int BUYERS = 600;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private EventTicketService service;
+
+    @Autowired
+    private StockShardRepository shardRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Sells one event to 600 buyers from 32 threads and returns the sales per second
+    private double flashSale(int shards) throws Exception {
+        Event event = service.createEvent("Shards-" + shards, Map.of("GA", SEATS), shards);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        double salesPerSecond;
+        try {
+            long start = System.nanoTime();
+            List<Future<PurchaseResult>> results = new ArrayList<>();
+            for (int i = 0; i < BUYERS; i++) {
+                results.add(pool.submit(() -> service.buy(event.getId(), "GA", 1)));
+            }
+            int sold = 0;
+            for (Future<PurchaseResult> result : results) {
+                if (result.get().success()) sold++;
+            }
+            salesPerSecond = sold / ((System.nanoTime() - start) / 1e9);
+
+            // Zero oversell, zero lost sales: every seat sold exactly once and no shard went negative
+            assertEquals(SEATS, sold);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(0L, service.stockByCategory(event.getId()).get("GA"));
+        shardRepository.findByEventIdAndCategoryOrderByShardIndex(event.getId(), "GA")
+                .forEach(shard -> assertEquals(0, shard.getStock()));
+        return salesPerSecond;
+    }
+
+    @Test
+    void everyShardCountSellsEachSeatExactlyOnce() throws Exception {
+        // The speed is reported, not asserted: it depends on the machine
+        System.out.printf("%n--- %d BUYERS, %d SEATS, %d CLIENTS, 5ms WORK UNDER THE LOCK ---%n", BUYERS, SEATS, THREADS);
+        System.out.printf("%-7s %14s%n", "Shards", "Sales/second");
+        for (int shards : new int[] {1, 4, 16}) {
+            System.out.printf("%-7d %14.0f%n", shards, flashSale(shards));
+        }
+    }
+
+    // Another transaction holds every shard lock of the category until the returned latch is released
+    private CountDownLatch holdAllShardLocks(long eventId, String category, ExecutorService pool) throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            shardRepository.findAllWithLock(eventId, category);
+            locked.countDown();
+            try { release.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    void soldOutBuyersAreTurnedAwayWithoutTakingALock() throws Exception {
+        Event event = service.createEvent("Sold out", Map.of("GA", 8, "VIP", 10), 4);
+        assertTrue(service.buy(event.getId(), "GA", 8).success());
+        assertTrue(service.buy(event.getId(), "VIP", 9).success()); // 1 VIP seat left, on a shard nobody saw empty
+
+        ExecutorService pool = Executors.newFixedThreadPool(3); // Two lock holders and one buyer
+        CountDownLatch releaseGa = holdAllShardLocks(event.getId(), "GA", pool);
+        CountDownLatch releaseVip = holdAllShardLocks(event.getId(), "VIP", pool);
+        try {
+            // With LOCK_TIMEOUT=30000 a buyer that asked for any of these locks would still be waiting
+            Future<PurchaseResult> ga = pool.submit(() -> service.buy(event.getId(), "GA", 1));
+            assertEquals(PurchaseResult.soldOut(0), ga.get(10, TimeUnit.SECONDS));
+
+            Future<PurchaseResult> vip = pool.submit(() -> service.buy(event.getId(), "VIP", 2));
+            assertEquals(PurchaseResult.soldOut(1), vip.get(10, TimeUnit.SECONDS));
+        } finally {
+            releaseGa.countDown();
+            releaseVip.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void ordersLargerThanAnyShardAreFilledAcrossShards() {
+        Event event = service.createEvent("Small", Map.of("VIP", 10), 4); // Shards of 3, 3, 2, 2
+
+        PurchaseResult five = service.buy(event.getId(), "VIP", 5);
+        assertTrue(five.success());
+        assertEquals(5, five.remaining());
+
+        assertFalse(service.buy(event.getId(), "VIP", 6).success());
+        assertEquals(5L, service.stockByCategory(event.getId()).get("VIP"));
+    }
+
+    @Test
+    void categoriesAreIndependent() {
+        Event event = service.createEvent("Two categories", Map.of("VIP", 1, "GA", 5), 2);
+
+        assertTrue(service.buy(event.getId(), "VIP", 1).success());
+        assertFalse(service.buy(event.getId(), "VIP", 1).success());
+        assertEquals(Map.of("GA", 5L, "VIP", 0L), service.stockByCategory(event.getId()));
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.ticket_seller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "tickets.purchase.strategy=group-commit",
+        "tickets.simulated-work-ms=0",
+        "spring.datasource.url=jdbc:h2:mem:group-commit-strategy"
+})
+class GroupCommitPurchaseStrategyTests {
+
+    @Autowired
+    private TicketRepository repository;
+
+    @Autowired
+    private PurchaseStrategy strategy;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PurchaseMetrics metrics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void batchesNeverOversellAndEverySuccessGetsItsOwnSeat() throws Exception {
+        repository.save(new TicketInventory(30L, 100));
+
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        List<Future<PurchaseResult>> results = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            results.add(pool.submit(() -> strategy.purchase(30L, 1)));
+        }
+
+        Set<Integer> remainingSeen = new TreeSet<>();
+        int sold = 0;
+        for (Future<PurchaseResult> result : results) {
+            PurchaseResult r = result.get();
+            if (r.success()) {
+                sold++;
+                remainingSeen.add(r.remaining());
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(100, sold);
+        assertEquals(100, remainingSeen.size()); // "Remaining: 99" ... "Remaining: 0", each exactly once
+        assertEquals(0, repository.findById(30L).orElseThrow().getStock());
+        assertFalse(strategy.purchase(30L, 1).success());
+    }
+
+    @Test
+    void aLargeOrderThatDoesNotFitDoesNotBlockSmallerOnes() {
+        repository.save(new TicketInventory(31L, 3));
+
+        assertFalse(strategy.purchase(31L, 5).success());
+        assertEquals(1, strategy.purchase(31L, 2).remaining());
+        assertEquals(1, repository.findById(31L).orElseThrow().getStock());
+    }
+
+    @Test
+    void anUnknownInventoryFailsOnlyItsOwnBuyers() throws Exception {
+        repository.save(new TicketInventory(32L, 100));
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        List<Future<PurchaseResult>> known = new ArrayList<>();
+        List<Future<PurchaseResult>> unknown = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            known.add(pool.submit(() -> strategy.purchase(32L, 1)));
+            if (i % 4 == 0) {
+                unknown.add(pool.submit(() -> strategy.purchase(999L, 1))); // Lands in the same batches
+            }
+        }
+        for (Future<PurchaseResult> result : known) {
+            assertTrue(result.get().success());
+        }
+        for (Future<PurchaseResult> result : unknown) {
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(NoSuchElementException.class, e.getCause());
+        }
+        pool.shutdown();
+        assertEquals(60, repository.findById(32L).orElseThrow().getStock());
+    }
+
+    @Test
+    void aBuyerNeverWaitsLongerThanTheConfirmTimeout() {
+        // A batcher that never runs, like one that stopped right after the 'running' check
+        GroupCommitPurchaseStrategy stalled = new GroupCommitPurchaseStrategy(repository, transactionTemplate, metrics,
+                0, 200, 5, 200);
+
+        assertThrows(IllegalStateException.class, () -> stalled.purchase(31L, 1));
+    }
+
+    @Test
+    void aBuyerWhoseBatchIsAlreadyRunningWaitsForItsSeat() throws Exception {
+        repository.save(new TicketInventory(33L, 10));
+        // Every batch takes 400ms, far longer than the 100ms confirm timeout
+        TransactionTemplate slow = new TransactionTemplate(transactionManager) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                try { Thread.sleep(400); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                return super.execute(action);
+            }
+        };
+        GroupCommitPurchaseStrategy slowBatches = new GroupCommitPurchaseStrategy(repository, slow, metrics,
+                0, 200, 5, 100);
+        slowBatches.start();
+        try {
+            PurchaseResult result = slowBatches.purchase(33L, 1);
+
+            assertTrue(result.success()); // Not a timeout for a seat that was in fact sold
+            assertEquals(9, result.remaining());
+            assertEquals(9, repository.findById(33L).orElseThrow().getStock());
+        } finally {
+            slowBatches.stop();
+        }
+    }
+}
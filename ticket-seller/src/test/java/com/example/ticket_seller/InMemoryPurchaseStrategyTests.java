@@ -0,0 +1,119 @@
+package com.example.ticket_seller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "tickets.purchase.strategy=in-memory",
+        "tickets.simulated-work-ms=0",
+        "spring.datasource.url=jdbc:h2:mem:in-memory-strategy"
+})
+class InMemoryPurchaseStrategyTests {
+
+    @Autowired
+    private TicketRepository inventoryRepository;
+
+    @Autowired
+    private TicketSaleRepository saleRepository;
+
+    @Autowired
+    private SalesWriteBehind writeBehind;
+
+    @Autowired
+    private PurchaseMetrics metrics;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void clearSales() {
+        saleRepository.deleteAll();
+    }
+
+    private int buyConcurrently(PurchaseStrategy strategy, long inventoryId, int buyers) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<PurchaseResult>> results = new ArrayList<>();
+            for (int i = 0; i < buyers; i++) {
+                results.add(pool.submit(() -> strategy.purchase(inventoryId, 1)));
+            }
+            int sold = 0;
+            for (Future<PurchaseResult> result : results) {
+                if (result.get().success()) sold++;
+            }
+            return sold;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private InMemoryPurchaseStrategy freshStrategy() {
+        return freshStrategy(writeBehind);
+    }
+
+    private InMemoryPurchaseStrategy freshStrategy(SalesWriteBehind writeBehind) {
+        // A new instance knows nothing but what is in the database, exactly like after a restart
+        InMemoryPurchaseStrategy strategy = new InMemoryPurchaseStrategy(inventoryRepository, writeBehind, metrics, 0, 5000);
+        strategy.loadInventory();
+        return strategy;
+    }
+
+    @Test
+    void neverOversellsAndPersistsEverySale() throws Exception {
+        inventoryRepository.save(new TicketInventory(10L, 100));
+        InMemoryPurchaseStrategy strategy = freshStrategy();
+
+        assertEquals(100, buyConcurrently(strategy, 10L, 500));
+        assertFalse(strategy.purchase(10L, 1).success());
+
+        // Every "Success!" was answered after its commit: nothing left to wait for
+        assertEquals(0, inventoryRepository.findById(10L).orElseThrow().getStock());
+        assertEquals(100, saleRepository.sumQuantityByInventoryId(10L));
+    }
+
+    @Test
+    void inventoryIsReconstructedAfterARestart() throws Exception {
+        inventoryRepository.save(new TicketInventory(20L, 100));
+
+        assertEquals(30, buyConcurrently(freshStrategy(), 20L, 30));
+        assertTrue(writeBehind.awaitFlushed(Duration.ofSeconds(10)));
+
+        // "Restart": the new counter starts from the persisted stock, so only the remaining 70 can be sold
+        InMemoryPurchaseStrategy restarted = freshStrategy();
+        assertEquals(70, buyConcurrently(restarted, 20L, 200));
+
+        assertTrue(writeBehind.awaitFlushed(Duration.ofSeconds(10)));
+        assertEquals(0, inventoryRepository.findById(20L).orElseThrow().getStock());
+        assertEquals(100, saleRepository.sumQuantityByInventoryId(20L));
+    }
+
+    @Test
+    void aSaleThatCannotBeWrittenIsNotConfirmedAndTheSeatGoesBack() throws Exception {
+        inventoryRepository.save(new TicketInventory(30L, 5));
+        SalesWriteBehind stopped = new SalesWriteBehind(inventoryRepository, saleRepository, transactionTemplate, 500, 20, 5);
+        stopped.start();
+        stopped.stop();
+        InMemoryPurchaseStrategy strategy = freshStrategy(stopped);
+
+        assertThrows(IllegalStateException.class, () -> strategy.purchase(30L, 2));
+
+        // Nothing was sold, in memory or in the database (asking for 6 reads the counter without buying)
+        assertEquals(PurchaseResult.soldOut(5), strategy.purchase(30L, 6));
+        assertEquals(5, inventoryRepository.findById(30L).orElseThrow().getStock());
+        assertEquals(0, saleRepository.sumQuantityByInventoryId(30L));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.ticket_seller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "tickets.purchase.strategy=optimistic",
+        "tickets.simulated-work-ms=5",
+        "tickets.optimistic.max-attempts=1000", // Nobody gives up here, so exactly 100 sales are expected
+        "spring.datasource.url=jdbc:h2:mem:optimistic-strategy"
+})
+class OptimisticPurchaseStrategyTests {
+
+    @Autowired
+    private TicketRepository repository;
+
+    @Autowired
+    private PurchaseStrategy strategy;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private double attempts() {
+        return registry.counter("tickets.purchase.attempts", "strategy", "optimistic").count();
+    }
+
+    private double conflicts() {
+        return registry.counter("tickets.purchase.conflicts", "strategy", "optimistic").count();
+    }
+
+    @Test
+    void conflictsAreRetriedAndNothingIsOversold() throws Exception {
+        repository.save(new TicketInventory(40L, 100));
+        double attemptsBefore = attempts();
+        double conflictsBefore = conflicts();
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        List<Future<PurchaseResult>> results = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            results.add(pool.submit(() -> strategy.purchase(40L, 1)));
+        }
+
+        Set<Integer> remainingSeen = new TreeSet<>();
+        int sold = 0;
+        for (Future<PurchaseResult> result : results) {
+            PurchaseResult r = result.get();
+            if (r.success()) {
+                sold++;
+                remainingSeen.add(r.remaining());
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(100, sold);
+        assertEquals(100, remainingSeen.size()); // Every winner saw its own "Remaining: N"
+        TicketInventory inventory = repository.findById(40L).orElseThrow();
+        assertEquals(0, inventory.getStock());
+        assertEquals(100L, inventory.getVersion()); // One version bump per sale, nothing else wrote
+
+        // 32 buyers finishing their work at once must have collided, and every collision was retried
+        double attempts = attempts() - attemptsBefore;
+        double conflicts = conflicts() - conflictsBefore;
+        assertTrue(conflicts > 0);
+        assertEquals(100, attempts - conflicts);
+        assertTrue(registry.find("tickets.purchase.lock.wait").tag("strategy", "optimistic").timer().count() > 0);
+    }
+
+    @Test
+    void soldOutIsAnsweredFromTheReadWithoutAttemptingAWrite() {
+        repository.save(new TicketInventory(41L, 1));
+
+        assertTrue(strategy.purchase(41L, 1).success());
+        double attemptsBefore = attempts();
+        assertFalse(strategy.purchase(41L, 1).success());
+        assertEquals(attemptsBefore, attempts());
+        assertEquals(0, repository.findById(41L).orElseThrow().getStock());
+    }
+}